@@ -0,0 +1,83 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.benchmark;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.UnsafeMemory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
+/*
+ * The cost of UnsafeMemory.allocate/freeMemory compared with Unsafe directly.
+ * Run with -Dmemory.tracking=true to measure the cost of tracking, without it the tracking check should cost nothing.
+ */
+@State(Scope.Thread)
+public class AllocateBenchmark {
+    @Param({"64", "4096"})
+    int size = 64;
+
+    public static void main(String... args) throws RunnerException, InvocationTargetException, IllegalAccessException {
+        if (Jvm.isDebug()) {
+            AllocateBenchmark main = new AllocateBenchmark();
+            for (Method m : AllocateBenchmark.class.getMethods()) {
+                if (m.getAnnotation(Benchmark.class) != null) {
+                    m.invoke(main);
+                }
+            }
+        } else {
+            int time = Boolean.getBoolean("longTest") ? 30 : 2;
+            System.out.println("measurementTime: " + time + " secs");
+            OptionsBuilder builder = new OptionsBuilder();
+            builder.include(AllocateBenchmark.class.getSimpleName())
+                    .warmupIterations(5)
+                    .measurementIterations(5)
+                    .forks(3)
+                    .mode(Mode.AverageTime)
+                    .measurementTime(TimeValue.seconds(time))
+                    .timeUnit(TimeUnit.NANOSECONDS);
+            if (Boolean.getBoolean("memory.tracking"))
+                builder.jvmArgsAppend("-Dmemory.tracking=true");
+            Options opt = builder.build();
+
+            new Runner(opt).run();
+        }
+    }
+
+    @Benchmark
+    public long unsafeAllocateFree() {
+        long address = UNSAFE.allocateMemory(size);
+        UNSAFE.freeMemory(address);
+        return address;
+    }
+
+    @Benchmark
+    public long allocateFree() {
+        long address = UnsafeMemory.INSTANCE.allocate(size);
+        UnsafeMemory.INSTANCE.freeMemory(address, size);
+        return address;
+    }
+}
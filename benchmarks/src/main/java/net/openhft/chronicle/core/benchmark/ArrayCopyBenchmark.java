@@ -0,0 +1,150 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.benchmark;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares the bulk Memory.readXxxs/writeXxxs copies with a loop of readXxx/writeXxx per element.
+ */
+@State(Scope.Thread)
+public class ArrayCopyBenchmark {
+    static final Memory MEMORY = OS.memory();
+
+    @Param({"16", "1024", "65536"})
+    int length = 1024;
+
+    long[] longs;
+    int[] ints;
+    double[] doubles;
+    long address;
+
+    public static void main(String... args) throws RunnerException, InvocationTargetException, IllegalAccessException {
+        if (Jvm.isDebug()) {
+            ArrayCopyBenchmark main = new ArrayCopyBenchmark();
+            main.setUp();
+            for (Method m : ArrayCopyBenchmark.class.getMethods()) {
+                if (m.getAnnotation(Benchmark.class) != null) {
+                    m.invoke(main);
+                }
+            }
+            main.tearDown();
+        } else {
+            int time = Boolean.getBoolean("longTest") ? 30 : 2;
+            System.out.println("measurementTime: " + time + " secs");
+            Options opt = new OptionsBuilder()
+                    .include(ArrayCopyBenchmark.class.getSimpleName())
+                    .warmupIterations(5)
+                    .measurementIterations(5)
+                    .forks(3)
+                    .mode(Mode.AverageTime)
+                    .measurementTime(TimeValue.seconds(time))
+                    .timeUnit(TimeUnit.NANOSECONDS)
+                    .build();
+
+            new Runner(opt).run();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        longs = new long[length];
+        ints = new int[length];
+        doubles = new double[length];
+        for (int i = 0; i < length; i++) {
+            longs[i] = i * 0x0101010101L;
+            ints[i] = i;
+            doubles[i] = i / 10.0;
+        }
+        address = MEMORY.allocate(length * 8L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MEMORY.freeMemory(address, length * 8L);
+    }
+
+    @Benchmark
+    public long writeLongsLoop() {
+        for (int i = 0; i < length; i++)
+            MEMORY.writeLong(address + i * 8L, longs[i]);
+        return address;
+    }
+
+    @Benchmark
+    public long writeLongsBulk() {
+        MEMORY.writeLongs(address, longs, 0, length);
+        return address;
+    }
+
+    @Benchmark
+    public long writeLongsBulkSwapped() {
+        MEMORY.writeLongs(address, longs, 0, length, true);
+        return address;
+    }
+
+    @Benchmark
+    public long[] readLongsLoop() {
+        for (int i = 0; i < length; i++)
+            longs[i] = MEMORY.readLong(address + i * 8L);
+        return longs;
+    }
+
+    @Benchmark
+    public long[] readLongsBulk() {
+        MEMORY.readLongs(address, longs, 0, length);
+        return longs;
+    }
+
+    @Benchmark
+    public long writeIntsLoop() {
+        for (int i = 0; i < length; i++)
+            MEMORY.writeInt(address + i * 4L, ints[i]);
+        return address;
+    }
+
+    @Benchmark
+    public long writeIntsBulk() {
+        MEMORY.writeInts(address, ints, 0, length);
+        return address;
+    }
+
+    @Benchmark
+    public double[] readDoublesLoop() {
+        for (int i = 0; i < length; i++)
+            doubles[i] = MEMORY.readDouble(address + i * 8L);
+        return doubles;
+    }
+
+    @Benchmark
+    public double[] readDoublesBulk() {
+        MEMORY.readDoubles(address, doubles, 0, length);
+        return doubles;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.benchmark;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares Memory.compareMemory, mismatch, indexOf and hash64 with loops of readByte.
+ */
+@State(Scope.Thread)
+public class MemoryScanBenchmark {
+    static final Memory MEMORY = OS.memory();
+
+    @Param({"16", "256", "4096"})
+    int length = 256;
+
+    long address;
+    long address2;
+
+    public static void main(String... args) throws RunnerException, InvocationTargetException, IllegalAccessException {
+        if (Jvm.isDebug()) {
+            MemoryScanBenchmark main = new MemoryScanBenchmark();
+            main.setUp();
+            for (Method m : MemoryScanBenchmark.class.getMethods()) {
+                if (m.getAnnotation(Benchmark.class) != null) {
+                    m.invoke(main);
+                }
+            }
+            main.tearDown();
+        } else {
+            int time = Boolean.getBoolean("longTest") ? 30 : 2;
+            System.out.println("measurementTime: " + time + " secs");
+            Options opt = new OptionsBuilder()
+                    .include(MemoryScanBenchmark.class.getSimpleName())
+                    .warmupIterations(5)
+                    .measurementIterations(5)
+                    .forks(3)
+                    .mode(Mode.AverageTime)
+                    .measurementTime(TimeValue.seconds(time))
+                    .timeUnit(TimeUnit.NANOSECONDS)
+                    .build();
+
+            new Runner(opt).run();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        address = MEMORY.allocate(length);
+        address2 = MEMORY.allocate(length);
+        // the same text in both, with a difference in the last byte.
+        for (int i = 0; i < length; i++) {
+            byte b = (byte) ('a' + i % 26);
+            MEMORY.writeByte(address + i, b);
+            MEMORY.writeByte(address2 + i, b);
+        }
+        MEMORY.writeByte(address2 + length - 1, (byte) '\n');
+    }
+
+    @TearDown
+    public void tearDown() {
+        MEMORY.freeMemory(address, length);
+        MEMORY.freeMemory(address2, length);
+    }
+
+    @Benchmark
+    public long mismatchLoop() {
+        for (int i = 0; i < length; i++)
+            if (MEMORY.readByte(address + i) != MEMORY.readByte(address2 + i))
+                return i;
+        return -1;
+    }
+
+    @Benchmark
+    public long mismatch() {
+        return MEMORY.mismatch(address, address2, length);
+    }
+
+    @Benchmark
+    public int compareMemoryLoop() {
+        for (int i = 0; i < length; i++) {
+            int cmp = (MEMORY.readByte(address + i) & 0xFF) - (MEMORY.readByte(address2 + i) & 0xFF);
+            if (cmp != 0)
+                return cmp;
+        }
+        return 0;
+    }
+
+    @Benchmark
+    public int compareMemory() {
+        return MEMORY.compareMemory(address, address2, length);
+    }
+
+    @Benchmark
+    public long indexOfLoop() {
+        for (int i = 0; i < length; i++)
+            if (MEMORY.readByte(address2 + i) == '\n')
+                return i;
+        return -1;
+    }
+
+    @Benchmark
+    public long indexOf() {
+        return MEMORY.indexOf(address2, length, (byte) '\n');
+    }
+
+    @Benchmark
+    public long hash64Loop() {
+        long h = 0;
+        for (int i = 0; i < length; i++)
+            h = h * 841248317 + MEMORY.readByte(address + i);
+        return h;
+    }
+
+    @Benchmark
+    public long hash64() {
+        return MEMORY.hash64(address, length);
+    }
+}
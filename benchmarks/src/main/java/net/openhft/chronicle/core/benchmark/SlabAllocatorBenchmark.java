@@ -0,0 +1,104 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.benchmark;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.SlabAllocator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Churn of short lived scratch buffers, SlabAllocator compared with Memory.allocate/freeMemory.
+ */
+@State(Scope.Benchmark)
+public class SlabAllocatorBenchmark {
+    static final Memory MEMORY = OS.memory();
+    static final int BATCH = 16;
+
+    @Param({"64", "1024"})
+    int size = 64;
+
+    SlabAllocator allocator;
+
+    public static void main(String... args) throws RunnerException, InvocationTargetException, IllegalAccessException {
+        if (Jvm.isDebug()) {
+            SlabAllocatorBenchmark main = new SlabAllocatorBenchmark();
+            main.setUp();
+            for (Method m : SlabAllocatorBenchmark.class.getMethods()) {
+                if (m.getAnnotation(Benchmark.class) != null) {
+                    m.invoke(main);
+                }
+            }
+            main.tearDown();
+        } else {
+            int time = Boolean.getBoolean("longTest") ? 30 : 2;
+            System.out.println("measurementTime: " + time + " secs");
+            Options opt = new OptionsBuilder()
+                    .include(SlabAllocatorBenchmark.class.getSimpleName())
+                    .warmupIterations(5)
+                    .measurementIterations(5)
+                    .forks(3)
+                    .threads(Integer.getInteger("threads", 1))
+                    .mode(Mode.AverageTime)
+                    .measurementTime(TimeValue.seconds(time))
+                    .timeUnit(TimeUnit.NANOSECONDS)
+                    .build();
+
+            new Runner(opt).run();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        allocator = new SlabAllocator(MEMORY, 1 << 20, 64, 256, 1024, 4096);
+    }
+
+    @TearDown
+    public void tearDown() {
+        allocator.close();
+    }
+
+    @Benchmark
+    public long allocateFree() {
+        long[] blocks = new long[BATCH];
+        for (int i = 0; i < BATCH; i++)
+            blocks[i] = MEMORY.allocate(size);
+        for (int i = 0; i < BATCH; i++)
+            MEMORY.freeMemory(blocks[i], size);
+        return blocks[0];
+    }
+
+    @Benchmark
+    public long slabAllocateFree() {
+        long[] blocks = new long[BATCH];
+        for (int i = 0; i < BATCH; i++)
+            blocks[i] = allocator.allocate(size);
+        for (int i = 0; i < BATCH; i++)
+            allocator.freeMemory(blocks[i], size);
+        return blocks[0];
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.benchmark;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.pool.ConcurrentStringInterner;
+import net.openhft.chronicle.core.pool.StringInterner;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Interning the same keys from 1, 4 and 16 threads, a shared ConcurrentStringInterner compared with a StringInterner
+ * per thread and String.intern(). Set -Dthreads=N to run one thread count.
+ */
+@State(Scope.Thread)
+public class StringInternerBenchmark {
+    static final int KEYS = 1024;
+    static final ConcurrentStringInterner SHARED = new ConcurrentStringInterner(KEYS * 2);
+
+    final StringInterner perThread = new StringInterner(KEYS * 2);
+    final StringBuilder[] keys = new StringBuilder[KEYS];
+    int next;
+
+    public static void main(String... args) throws RunnerException, InvocationTargetException, IllegalAccessException {
+        if (Jvm.isDebug()) {
+            StringInternerBenchmark main = new StringInternerBenchmark();
+            main.setUp();
+            for (Method m : StringInternerBenchmark.class.getMethods()) {
+                if (m.getAnnotation(Benchmark.class) != null) {
+                    m.invoke(main);
+                }
+            }
+        } else {
+            int time = Boolean.getBoolean("longTest") ? 30 : 2;
+            System.out.println("measurementTime: " + time + " secs");
+            Integer threads = Integer.getInteger("threads");
+            for (int t : threads == null ? new int[]{1, 4, 16} : new int[]{threads}) {
+                Options opt = new OptionsBuilder()
+                        .include(StringInternerBenchmark.class.getSimpleName())
+                        .warmupIterations(5)
+                        .measurementIterations(5)
+                        .forks(1)
+                        .threads(t)
+                        .mode(Mode.AverageTime)
+                        .measurementTime(TimeValue.seconds(time))
+                        .timeUnit(TimeUnit.NANOSECONDS)
+                        .build();
+
+                new Runner(opt).run();
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < KEYS; i++)
+            keys[i] = new StringBuilder("key-").append(i * 31);
+    }
+
+    private StringBuilder nextKey() {
+        return keys[next++ & (KEYS - 1)];
+    }
+
+    @Benchmark
+    public String concurrentIntern() {
+        return SHARED.intern(nextKey());
+    }
+
+    @Benchmark
+    public String perThreadIntern() {
+        return perThread.intern(nextKey());
+    }
+
+    @Benchmark
+    public String stringIntern() {
+        return nextKey().toString().intern();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.benchmark;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.threads.WaitStrategies;
+import net.openhft.chronicle.core.threads.WaitStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The time taken to wait for a fixed interval with each WaitStrategy, the excess over the interval is the wake up
+ * jitter. Sample mode shows the distribution. See WaitStrategyJLBHMain for the CPU used by each strategy.
+ */
+@State(Scope.Thread)
+public class WaitStrategyBenchmark {
+    @Param({"BUSY_SPIN", "YIELD", "PARK", "ADAPTIVE", "TIMED_HYBRID"})
+    String strategy = "BUSY_SPIN";
+
+    @Param({"20000"})
+    long intervalNanos = 20_000;
+
+    WaitStrategy waitStrategy;
+
+    public static void main(String... args) throws RunnerException, InvocationTargetException, IllegalAccessException {
+        if (Jvm.isDebug()) {
+            WaitStrategyBenchmark main = new WaitStrategyBenchmark();
+            main.setUp();
+            for (Method m : WaitStrategyBenchmark.class.getMethods()) {
+                if (m.getAnnotation(Benchmark.class) != null) {
+                    m.invoke(main);
+                }
+            }
+        } else {
+            int time = Boolean.getBoolean("longTest") ? 30 : 2;
+            System.out.println("measurementTime: " + time + " secs");
+            Options opt = new OptionsBuilder()
+                    .include(WaitStrategyBenchmark.class.getSimpleName())
+                    .warmupIterations(5)
+                    .measurementIterations(5)
+                    .forks(1)
+                    .mode(Mode.SampleTime)
+                    .measurementTime(TimeValue.seconds(time))
+                    .timeUnit(TimeUnit.NANOSECONDS)
+                    .build();
+
+            new Runner(opt).run();
+        }
+    }
+
+    static WaitStrategy waitStrategy(String strategy) {
+        switch (strategy) {
+            case "ADAPTIVE":
+                return WaitStrategies.adaptive(10_000, 10_000);
+            case "TIMED_HYBRID":
+                return WaitStrategies.timedHybrid(100_000);
+            default:
+                return WaitStrategies.valueOf(strategy);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        waitStrategy = waitStrategy(strategy);
+    }
+
+    @Benchmark
+    public void waitNanos() {
+        waitStrategy.waitNanos(intervalNanos);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.benchmark;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.jlbh.*;
+import net.openhft.chronicle.core.threads.WaitStrategy;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Compares the wake up jitter of each WaitStrategy, how late the task starts after its intended start time, with the
+ * CPU used by the benchmark thread while pacing at the throughput.
+ * Set -Dthroughput=N for the iterations per second, default 10,000.
+ */
+public class WaitStrategyJLBHMain implements JLBHTask {
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private JLBH jlbh;
+    private long cpuStart;
+    private long wallStart;
+    private double cpuPercent;
+
+    public static void main(String... args) {
+        int throughput = Integer.getInteger("throughput", 10_000);
+        Map<String, JLBHResult> results = new LinkedHashMap<>();
+        Map<String, Double> cpuPercents = new LinkedHashMap<>();
+        for (String strategy : new String[]{"BUSY_SPIN", "YIELD", "PARK", "ADAPTIVE", "TIMED_HYBRID"}) {
+            WaitStrategy waitStrategy = WaitStrategyBenchmark.waitStrategy(strategy);
+            WaitStrategyJLBHMain task = new WaitStrategyJLBHMain();
+            JLBHResultConsumer consumer = JLBHResultConsumer.newThreadSafeInstance();
+            JLBHOptions jlbhOptions = new JLBHOptions()
+                    .warmUpIterations(Jvm.compileThreshold() * 2)
+                    .iterations(throughput * 5)
+                    .throughput(throughput)
+                    .runs(3)
+                    .recordOSJitter(false)
+                    .accountForCoordinatedOmmission(true)
+                    .waitStrategy(waitStrategy)
+                    .jlbhTask(task);
+            System.out.println("Wait strategy: " + waitStrategy);
+            new JLBH(jlbhOptions, System.out, consumer).start();
+            results.put(strategy, consumer.get());
+            cpuPercents.put(strategy, task.cpuPercent);
+        }
+
+        System.out.println("-------------------------------- WAIT STRATEGIES (wake up latency of last run, us) --------------------------------");
+        System.out.printf("%-16s%12s%12s%12s%12s%12s%n", "Strategy", "50", "90", "99", "worst", "CPU %");
+        results.forEach((strategy, result) -> {
+            JLBHResult.RunResult runResult = result.endToEnd().summaryOfLastRun();
+            System.out.printf("%-16s%12.2f%12.2f%12.2f%12.2f%12.1f%n", strategy,
+                    runResult.get50thPercentile().toNanos() / 1e3,
+                    runResult.get90thPercentile().toNanos() / 1e3,
+                    runResult.get99thPercentile().toNanos() / 1e3,
+                    runResult.getWorst().toNanos() / 1e3,
+                    cpuPercents.get(strategy));
+        });
+        System.out.println("-------------------------------------------------------------------------------------------------------------------");
+    }
+
+    @Override
+    public void init(@NotNull JLBH jlbh) {
+        this.jlbh = jlbh;
+    }
+
+    @Override
+    public void warmedUp() {
+        cpuStart = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+        wallStart = System.nanoTime();
+    }
+
+    @Override
+    public void run(long startTimeNS) {
+        jlbh.sample(System.nanoTime() - startTimeNS);
+    }
+
+    @Override
+    public void complete() {
+        cpuPercent = 100.0 * (THREAD_MX_BEAN.getCurrentThreadCpuTime() - cpuStart) / (System.nanoTime() - wallStart);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.util.Histogram;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unmaps memory mappings on a background daemon thread so the thread releasing a mapping doesn't wait for munmap.
+ * <p>
+ * The queue is bounded by the number of mappings and the number of bytes pending. When either limit would be
+ * exceeded the caller unmaps the region itself, which limits how much address space can be waiting to be released.
+ * <p>
+ * {@link OS#memoryMapped()} includes the pending regions until they are actually unmapped.
+ * <p>
+ * {@link OS.Unmapper} uses the shared instance when -Dunmap.async=true, the limits of which are set with
+ * -Dunmap.async.queue=1024 and -Dunmap.async.maxPendingMB=4096
+ */
+public final class AsyncUnmapper implements Closeable {
+    static final boolean ENABLED = Boolean.getBoolean("unmap.async");
+    private static final AsyncUnmapper INSTANCE = new AsyncUnmapper("chronicle-unmapper",
+            Integer.getInteger("unmap.async.queue", 1024),
+            Long.getLong("unmap.async.maxPendingMB", 4096) << 20);
+
+    @NotNull
+    private final String name;
+    private final long maxPendingBytes;
+    @NotNull
+    private final BlockingQueue<Region> queue;
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong unmapped = new AtomicLong();
+    private final AtomicLong callerUnmapped = new AtomicLong();
+    private final AtomicLong maxUnmapNanos = new AtomicLong();
+    private final AtomicLong totalUnmapNanos = new AtomicLong();
+    private final Histogram unmapLatency = Histogram.timeMicros();
+    private Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * @param name            of the background thread
+     * @param queueSize       the maximum number of mappings pending
+     * @param maxPendingBytes the maximum number of bytes pending
+     */
+    public AsyncUnmapper(@NotNull String name, int queueSize, long maxPendingBytes) {
+        this.name = name;
+        this.maxPendingBytes = maxPendingBytes;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    /**
+     * @return the instance used by {@link OS.Unmapper} when -Dunmap.async=true
+     */
+    @NotNull
+    public static AsyncUnmapper instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Unmap a region on the background thread, or on this thread if the queue is full.
+     *
+     * @param address of the start of the mapping.
+     * @param size    of the region mapped.
+     * @return true if queued, false if unmapped by the caller.
+     * @throws IOException if the unmap was done by the caller and failed.
+     */
+    public boolean unmap(long address, long size) throws IOException {
+        long size2 = OS.pageAlign(size);
+        if (!closed) {
+            long pending = pendingBytes.addAndGet(size2);
+            // always allow one mapping to be pending however large.
+            if ((pending <= maxPendingBytes || pending == size2) && offer(address, size2))
+                return true;
+            pendingBytes.addAndGet(-size2);
+        }
+        callerUnmapped.incrementAndGet();
+        unmap0(address, size2);
+        return false;
+    }
+
+    private synchronized boolean offer(long address, long size) {
+        if (closed || !queue.offer(new Region(address, size)))
+            return false;
+        if (thread == null) {
+            thread = new Thread(this::run, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return true;
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted())
+                unmapQueued(queue.take());
+        } catch (InterruptedException e) {
+            // closing.
+        }
+    }
+
+    private void unmapQueued(@NotNull Region region) {
+        try {
+            unmap0(region.address, region.size);
+        } catch (IOException e) {
+            Jvm.warn().on(AsyncUnmapper.class, "Error on unmap of " + region, e);
+        } finally {
+            pendingBytes.addAndGet(-region.size);
+        }
+    }
+
+    private void unmap0(long address, long size) throws IOException {
+        long start = System.nanoTime();
+        OS.unmap(address, size);
+        long time = System.nanoTime() - start;
+        unmapped.incrementAndGet();
+        totalUnmapNanos.addAndGet(time);
+        maxUnmapNanos.accumulateAndGet(time, Math::max);
+        synchronized (unmapLatency) {
+            unmapLatency.sampleNanos(time);
+        }
+    }
+
+    /**
+     * Wait for the mappings queued so far to be unmapped.
+     *
+     * @param timeoutMillis to wait
+     * @return true if nothing is pending.
+     */
+    public boolean awaitPending(long timeoutMillis) {
+        long end = System.currentTimeMillis() + timeoutMillis;
+        while (pendingBytes.get() > 0) {
+            if (System.currentTimeMillis() >= end)
+                return false;
+            Jvm.pause(1);
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of bytes queued but not yet unmapped.
+     */
+    public long pendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * @return the number of mappings queued but not yet unmapped.
+     */
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of mappings unmapped, including those unmapped by the caller.
+     */
+    public long unmapped() {
+        return unmapped.get();
+    }
+
+    /**
+     * @return the number of mappings the caller had to unmap as the queue was full.
+     */
+    public long callerUnmapped() {
+        return callerUnmapped.get();
+    }
+
+    public long maxUnmapNanos() {
+        return maxUnmapNanos.get();
+    }
+
+    public long totalUnmapNanos() {
+        return totalUnmapNanos.get();
+    }
+
+    /**
+     * @return a copy of the distribution of the time taken by each unmap.
+     */
+    @NotNull
+    public Histogram unmapLatency() {
+        Histogram h = Histogram.timeMicros();
+        synchronized (unmapLatency) {
+            h.add(unmapLatency);
+        }
+        return h;
+    }
+
+    /**
+     * Stop the background thread and unmap anything still queued on the calling thread.
+     */
+    @Override
+    public void close() {
+        Thread t;
+        synchronized (this) {
+            closed = true;
+            t = thread;
+        }
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Region region; (region = queue.poll()) != null; )
+            unmapQueued(region);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "AsyncUnmapper{" +
+                "name='" + name + '\'' +
+                ", pendingCount=" + pendingCount() +
+                ", pendingBytes=" + pendingBytes() +
+                ", unmapped=" + unmapped() +
+                ", callerUnmapped=" + callerUnmapped() +
+                ", maxUnmapNanos=" + maxUnmapNanos() +
+                '}';
+    }
+
+    static final class Region {
+        final long address;
+        final long size;
+
+        Region(long address, long size) {
+            this.address = address;
+            this.size = size;
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return size + " bytes at 0x" + Long.toHexString(address);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package net.openhft.chronicle.core;
 
 import net.openhft.chronicle.core.onoes.*;
+import net.openhft.chronicle.core.threads.ThreadHints;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import sun.misc.Signal;
@@ -258,12 +259,13 @@ public enum Jvm {
     /**
      * This method is designed to be used when the time to be
      * waited is very small, typically under a millisecond.
+     * See {@link net.openhft.chronicle.core.threads.WaitStrategies} for other ways to wait.
      *
      * @param waitUntil nanosecond precision counter value to await.
      */
     public static void busyWaitUntil(long waitUntil) {
-        while (waitUntil > System.nanoTime()) {
-        }
+        while (waitUntil > System.nanoTime())
+            ThreadHints.onSpinWait();
     }
 
     /**
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.channels.FileChannel;
+
+/**
+ * A live memory mapping made by {@link OS#map(FileChannel, FileChannel.MapMode, long, long)}
+ *
+ * @see MappedRegions
+ */
+public final class MappedRegion {
+    private final long address;
+    private final long size;
+    @Nullable
+    private final String file;
+    private final long offset;
+    @NotNull
+    private final FileChannel.MapMode mode;
+    private final long createdMillis;
+    @Nullable
+    private final Throwable createdHere;
+
+    MappedRegion(long address, long size, @Nullable String file, long offset, @NotNull FileChannel.MapMode mode, long createdMillis, @Nullable Throwable createdHere) {
+        this.address = address;
+        this.size = size;
+        this.file = file;
+        this.offset = offset;
+        this.mode = mode;
+        this.createdMillis = createdMillis;
+        this.createdHere = createdHere;
+    }
+
+    public long address() {
+        return address;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the path of the file mapped, or null if it couldn't be determined.
+     */
+    @Nullable
+    public String file() {
+        return file;
+    }
+
+    /**
+     * @return the offset in the file of the start of the mapping.
+     */
+    public long offset() {
+        return offset;
+    }
+
+    @NotNull
+    public FileChannel.MapMode mode() {
+        return mode;
+    }
+
+    public long createdMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * @return the stack trace of the call to map, or null if -Dmapped.regions.stacks=false
+     */
+    @Nullable
+    public Throwable createdHere() {
+        return createdHere;
+    }
+
+    public long pages() {
+        return (size + OS.pageSize() - 1) / OS.pageSize();
+    }
+
+    /**
+     * This queries the OS each time it is called, as pages can be evicted or read in at any time.
+     *
+     * @return the number of pages resident in memory, or -1 if this is not available.
+     * @see OS#residentPages(long, long)
+     */
+    public long residentPages() {
+        return OS.residentPages(address, size);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "MappedRegion{" +
+                "address=0x" + Long.toHexString(address) +
+                ", size=" + size +
+                ", file='" + file + '\'' +
+                ", offset=" + offset +
+                ", mode=" + mode +
+                '}';
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+import net.openhft.chronicle.core.io.Closeable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A registry of the live memory mappings made by {@link OS#map(FileChannel, FileChannel.MapMode, long, long)}
+ * <p>
+ * Used to see how much of each mapped file is resident, e.g. to spot page cache pressure before it causes read stalls.
+ * The stack trace of each call to map is recorded unless -Dmapped.regions.stacks=false
+ */
+public enum MappedRegions {
+    ;
+    private static final boolean STACKS = !"false".equals(System.getProperty("mapped.regions.stacks"));
+    private static final Map<Long, MappedRegion> REGIONS = new ConcurrentHashMap<>();
+
+    static void mapped(@NotNull FileChannel fileChannel, int imode, long offset, long address, long size) {
+        Throwable createdHere = STACKS ? new Throwable("Mapped here") : null;
+        REGIONS.put(address, new MappedRegion(address, size, fileOf(fileChannel), offset, OS.modeFor(imode), System.currentTimeMillis(), createdHere));
+    }
+
+    // called before unmapping, as once unmapped the address can be mapped again by another thread.
+    @Nullable
+    static MappedRegion unmapping(long address) {
+        return REGIONS.remove(address);
+    }
+
+    static void unmapFailed(long address, @Nullable MappedRegion region) {
+        if (region != null)
+            REGIONS.putIfAbsent(address, region);
+    }
+
+    @Nullable
+    private static String fileOf(@NotNull FileChannel fileChannel) {
+        try {
+            return Jvm.getValue(fileChannel, "path");
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the live mappings in address order.
+     */
+    @NotNull
+    public static List<MappedRegion> snapshot() {
+        List<MappedRegion> regions = new ArrayList<>(REGIONS.values());
+        regions.sort(Comparator.comparingLong(MappedRegion::address));
+        return regions;
+    }
+
+    /**
+     * @param address of the start of a mapping
+     * @return the live mapping starting at that address, or null if there is none.
+     */
+    @Nullable
+    public static MappedRegion get(long address) {
+        return REGIONS.get(address);
+    }
+
+    public static int count() {
+        return REGIONS.size();
+    }
+
+    /**
+     * Summarise the mappings by file, including the proportion of the pages resident in memory.
+     *
+     * @return a human readable report.
+     */
+    @NotNull
+    public static String report() {
+        Map<String, long[]> byFile = new TreeMap<>();
+        long size = 0, pages = 0, resident = 0;
+        List<MappedRegion> regions = snapshot();
+        for (MappedRegion region : regions) {
+            long residentPages = Math.max(0, region.residentPages());
+            // regions, size, pages, resident pages
+            long[] totals = byFile.computeIfAbsent(String.valueOf(region.file()), f -> new long[4]);
+            totals[0]++;
+            totals[1] += region.size();
+            totals[2] += region.pages();
+            totals[3] += residentPages;
+            size += region.size();
+            pages += region.pages();
+            resident += residentPages;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("Memory mapped: ").append(size >> 20).append(" MiB in ").append(regions.size()).append(" regions");
+        if (Posix.AVAILABLE)
+            sb.append(", resident: ").append(percent(resident, pages));
+        for (Map.Entry<String, long[]> entry : byFile.entrySet()) {
+            long[] totals = entry.getValue();
+            sb.append("\n\t").append(entry.getKey())
+                    .append(": ").append(totals[1] >> 20).append(" MiB in ").append(totals[0]).append(" regions");
+            if (Posix.AVAILABLE)
+                sb.append(", resident: ").append(percent(totals[3], totals[2]));
+        }
+        return sb.toString();
+    }
+
+    @NotNull
+    private static String percent(long n, long total) {
+        return total == 0 ? "n/a" : (n * 1000 / total) / 10.0 + "%";
+    }
+
+    /**
+     * Log a {@link #report()} to {@link Jvm#perf()} periodically on a daemon thread.
+     *
+     * @param periodMillis between reports
+     * @return close to stop reporting.
+     */
+    @NotNull
+    public static Closeable startReporting(long periodMillis) {
+        Reporter reporter = new Reporter(periodMillis);
+        reporter.thread.start();
+        return reporter;
+    }
+
+    static final class Reporter implements Closeable {
+        final Thread thread;
+        private final long periodMillis;
+        private volatile boolean closed;
+
+        Reporter(long periodMillis) {
+            this.periodMillis = periodMillis;
+            thread = new Thread(this::run, "mapped-regions-reporter");
+            thread.setDaemon(true);
+        }
+
+        private void run() {
+            try {
+                while (!closed) {
+                    Thread.sleep(periodMillis);
+                    Jvm.perf().on(MappedRegions.class, report());
+                }
+            } catch (InterruptedException e) {
+                // stopped.
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            thread.interrupt();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+    }
+}
@@ -35,10 +35,76 @@ public interface Memory {
 
     void setMemory(long address, long size, byte b);
 
+    /**
+     * Compare two regions of native memory as unsigned bytes.
+     *
+     * @param address  of the first region
+     * @param address2 of the second region
+     * @param length   of both regions in bytes
+     * @return a negative value, zero or a positive value if the first region is less than, equal to or greater than the second.
+     */
+    int compareMemory(long address, long address2, long length);
+
+    /**
+     * Find the first byte which differs between two regions of native memory.
+     *
+     * @param address  of the first region
+     * @param address2 of the second region
+     * @param length   of both regions in bytes
+     * @return the offset of the first difference or -1 if the regions are the same.
+     */
+    long mismatch(long address, long address2, long length);
+
+    /**
+     * Find the first occurrence of a byte in a region of native memory.
+     *
+     * @param address of the region
+     * @param length  of the region in bytes
+     * @param b       to search for
+     * @return the offset of the first match or -1 if not found.
+     */
+    long indexOf(long address, long length, byte b);
+
+    /**
+     * A 64-bit hash of a region of native memory. The bytes are read as native longs so the result depends on the byte order of the platform.
+     *
+     * @param address of the region
+     * @param length  of the region in bytes
+     * @return the hash value.
+     */
+    long hash64(long address, long length);
+
     void freeMemory(long address, long size);
 
     long allocate(long capacity) throws IllegalArgumentException, OutOfMemoryError;
 
+    /**
+     * Allocate native memory, applying options once allocated.
+     * The memory is freed as usual with {@link #freeMemory(long, long)}.
+     *
+     * @param capacity to allocate
+     * @param options  to apply to the pages of the allocation
+     * @return the address allocated.
+     */
+    default long allocate(long capacity, MemoryOption... options) throws IllegalArgumentException, OutOfMemoryError {
+        long address = allocate(capacity);
+        for (MemoryOption option : options) {
+            switch (option) {
+                case HUGE_PAGES:
+                    // malloc doesn't page align so only the whole pages inside the allocation are advised.
+                    long start = OS.pageAlign(address);
+                    long end = (address + capacity) & -OS.pageSize();
+                    if (end > start)
+                        OS.adviseHugePages(start, end - start);
+                    break;
+                case PRETOUCH:
+                    OS.pretouch(address, capacity, true);
+                    break;
+            }
+        }
+        return address;
+    }
+
     long nativeMemoryUsed();
 
     void writeByte(long address, byte i8);
@@ -101,6 +167,194 @@ public interface Memory {
 
     void copyMemory(long fromAddress, Object obj2, long offset2, int length);
 
+    void readBooleans(long address, boolean[] booleans, int offset, int length);
+
+    void writeBooleans(long address, boolean[] booleans, int offset, int length);
+
+    void readBytes(long address, byte[] bytes, int offset, int length);
+
+    void writeBytes(long address, byte[] bytes, int offset, int length);
+
+    default void readChars(long address, char[] chars, int offset, int length) {
+        readChars(address, chars, offset, length, false);
+    }
+
+    /**
+     * Copy char values from native memory to an array.
+     *
+     * @param address   to copy from
+     * @param chars     to copy to
+     * @param offset    index of the first element to copy to
+     * @param length    number of elements to copy
+     * @param swapBytes if true, reverse the byte order of each element
+     */
+    void readChars(long address, char[] chars, int offset, int length, boolean swapBytes);
+
+    default void writeChars(long address, char[] chars, int offset, int length) {
+        writeChars(address, chars, offset, length, false);
+    }
+
+    /**
+     * Copy char values from an array to native memory.
+     *
+     * @param address   to copy to
+     * @param chars     to copy from
+     * @param offset    index of the first element to copy
+     * @param length    number of elements to copy
+     * @param swapBytes if true, reverse the byte order of each element
+     */
+    void writeChars(long address, char[] chars, int offset, int length, boolean swapBytes);
+
+    default void readShorts(long address, short[] shorts, int offset, int length) {
+        readShorts(address, shorts, offset, length, false);
+    }
+
+    /**
+     * Copy short values from native memory to an array.
+     *
+     * @param address   to copy from
+     * @param shorts    to copy to
+     * @param offset    index of the first element to copy to
+     * @param length    number of elements to copy
+     * @param swapBytes if true, reverse the byte order of each element
+     */
+    void readShorts(long address, short[] shorts, int offset, int length, boolean swapBytes);
+
+    default void writeShorts(long address, short[] shorts, int offset, int length) {
+        writeShorts(address, shorts, offset, length, false);
+    }
+
+    /**
+     * Copy short values from an array to native memory.
+     *
+     * @param address   to copy to
+     * @param shorts    to copy from
+     * @param offset    index of the first element to copy
+     * @param length    number of elements to copy
+     * @param swapBytes if true, reverse the byte order of each element
+     */
+    void writeShorts(long address, short[] shorts, int offset, int length, boolean swapBytes);
+
+    default void readInts(long address, int[] ints, int offset, int length) {
+        readInts(address, ints, offset, length, false);
+    }
+
+    /**
+     * Copy int values from native memory to an array.
+     *
+     * @param address   to copy from
+     * @param ints      to copy to
+     * @param offset    index of the first element to copy to
+     * @param length    number of elements to copy
+     * @param swapBytes if true, reverse the byte order of each element
+     */
+    void readInts(long address, int[] ints, int offset, int length, boolean swapBytes);
+
+    default void writeInts(long address, int[] ints, int offset, int length) {
+        writeInts(address, ints, offset, length, false);
+    }
+
+    /**
+     * Copy int values from an array to native memory.
+     *
+     * @param address   to copy to
+     * @param ints      to copy from
+     * @param offset    index of the first element to copy
+     * @param length    number of elements to copy
+     * @param swapBytes if true, reverse the byte order of each element
+     */
+    void writeInts(long address, int[] ints, int offset, int length, boolean swapBytes);
+
+    default void readFloats(long address, float[] floats, int offset, int length) {
+        readFloats(address, floats, offset, length, false);
+    }
+
+    /**
+     * Copy float values from native memory to an array.
+     *
+     * @param address   to copy from
+     * @param floats    to copy to
+     * @param offset    index of the first element to copy to
+     * @param length    number of elements to copy
+     * @param swapBytes if true, reverse the byte order of each element
+     */
+    void readFloats(long address, float[] floats, int offset, int length, boolean swapBytes);
+
+    default void writeFloats(long address, float[] floats, int offset, int length) {
+        writeFloats(address, floats, offset, length, false);
+    }
+
+    /**
+     * Copy float values from an array to native memory.
+     *
+     * @param address   to copy to
+     * @param floats    to copy from
+     * @param offset    index of the first element to copy
+     * @param length    number of elements to copy
+     * @param swapBytes if true, reverse the byte order of each element
+     */
+    void writeFloats(long address, float[] floats, int offset, int length, boolean swapBytes);
+
+    default void readLongs(long address, long[] longs, int offset, int length) {
+        readLongs(address, longs, offset, length, false);
+    }
+
+    /**
+     * Copy long values from native memory to an array.
+     *
+     * @param address   to copy from
+     * @param longs     to copy to
+     * @param offset    index of the first element to copy to
+     * @param length    number of elements to copy
+     * @param swapBytes if true, reverse the byte order of each element
+     */
+    void readLongs(long address, long[] longs, int offset, int length, boolean swapBytes);
+
+    default void writeLongs(long address, long[] longs, int offset, int length) {
+        writeLongs(address, longs, offset, length, false);
+    }
+
+    /**
+     * Copy long values from an array to native memory.
+     *
+     * @param address   to copy to
+     * @param longs     to copy from
+     * @param offset    index of the first element to copy
+     * @param length    number of elements to copy
+     * @param swapBytes if true, reverse the byte order of each element
+     */
+    void writeLongs(long address, long[] longs, int offset, int length, boolean swapBytes);
+
+    default void readDoubles(long address, double[] doubles, int offset, int length) {
+        readDoubles(address, doubles, offset, length, false);
+    }
+
+    /**
+     * Copy double values from native memory to an array.
+     *
+     * @param address   to copy from
+     * @param doubles   to copy to
+     * @param offset    index of the first element to copy to
+     * @param length    number of elements to copy
+     * @param swapBytes if true, reverse the byte order of each element
+     */
+    void readDoubles(long address, double[] doubles, int offset, int length, boolean swapBytes);
+
+    default void writeDoubles(long address, double[] doubles, int offset, int length) {
+        writeDoubles(address, doubles, offset, length, false);
+    }
+
+    /**
+     * Copy double values from an array to native memory.
+     *
+     * @param address   to copy to
+     * @param doubles   to copy from
+     * @param offset    index of the first element to copy
+     * @param length    number of elements to copy
+     * @param swapBytes if true, reverse the byte order of each element
+     */
+    void writeDoubles(long address, double[] doubles, int offset, int length, boolean swapBytes);
+
     void writeOrderedLong(long address, long i);
 
     void writeOrderedLong(Object object, long offset, long i);
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+/**
+ * The advice which can be given with {@link OS#advise(long, long, MemoryAdvice)}, the values are those of madvise on Linux.
+ */
+public enum MemoryAdvice {
+    NORMAL(0),
+    RANDOM(1),
+    SEQUENTIAL(2),
+    WILL_NEED(3),
+    /**
+     * For a shared file mapping the pages are dropped and read from the file on next access.
+     * For private and anonymous memory any changes are lost.
+     */
+    DONT_NEED(4),
+    HUGE_PAGE(14),
+    NO_HUGE_PAGE(15);
+
+    final int advice;
+
+    MemoryAdvice(int advice) {
+        this.advice = advice;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+/**
+ * Options for {@link OS#map(java.nio.channels.FileChannel, java.nio.channels.FileChannel.MapMode, long, long, MemoryOption...)}
+ * and {@link Memory#allocate(long, MemoryOption...)}
+ */
+public enum MemoryOption {
+    /**
+     * Ask for transparent huge pages with madvise(MADV_HUGEPAGE). Only available on Linux with JNA on the class path,
+     * use {@link OS#hugePageBytes(long, long)} to see whether it took effect.
+     */
+    HUGE_PAGES,
+    /**
+     * Touch every page so the page faults happen now rather than on first access.
+     */
+    PRETOUCH
+}
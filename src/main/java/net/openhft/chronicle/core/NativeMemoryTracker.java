@@ -0,0 +1,288 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
+/**
+ * Records the size and allocating call site of each block allocated by {@link UnsafeMemory#allocate(long)}.
+ * <p>
+ * Enabled with -Dmemory.tracking=true, the number of stack frames recorded per call site is set with
+ * -Dmemory.tracking.depth=4. When disabled {@link UnsafeMemory#tracker()} returns null and allocation is not affected.
+ * <p>
+ * Live blocks are held in an open addressing table in native memory so tracking doesn't add to the heap per allocation.
+ */
+public final class NativeMemoryTracker {
+    static final boolean ENABLED = Boolean.getBoolean("memory.tracking");
+    private static final int DEPTH = Integer.getInteger("memory.tracking.depth", 4);
+    private static final Set<String> SKIPPED_CLASSES = new HashSet<>(Arrays.asList(
+            Throwable.class.getName(),
+            NativeMemoryTracker.class.getName(),
+            UnsafeMemory.class.getName()));
+
+    // each entry is address, size, allocation time in ms, call site id
+    private static final int ENTRY_SIZE = 32;
+    private static final int SIZE = 8;
+    private static final int TIME = 16;
+    private static final int SITE = 24;
+
+    private final Map<String, Integer> siteIds = new HashMap<>();
+    private final List<String> sites = new ArrayList<>();
+    private long[] siteBytes = new long[16];
+    private long[] siteBlocks = new long[16];
+    private long[] siteAllocations = new long[16];
+
+    // allocated on first use as the tracker is created while UnsafeMemory is initialised.
+    private long table;
+    private int capacity = 1 << 12;
+    private int count;
+
+    private static long newTable(int capacity) {
+        long bytes = (long) capacity * ENTRY_SIZE;
+        long address = UNSAFE.allocateMemory(bytes);
+        UNSAFE.setMemory(address, bytes, (byte) 0);
+        return address;
+    }
+
+    @NotNull
+    private static String callSite() {
+        StackTraceElement[] stes = new Throwable().getStackTrace();
+        StringBuilder sb = new StringBuilder();
+        int frames = 0;
+        for (StackTraceElement ste : stes) {
+            if (frames == 0 && SKIPPED_CLASSES.contains(ste.getClassName()))
+                continue;
+            if (frames > 0)
+                sb.append(" <- ");
+            sb.append(ste);
+            if (++frames >= DEPTH)
+                break;
+        }
+        return sb.toString();
+    }
+
+    void allocated(long address, long size) {
+        String site = callSite();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            int siteId = siteId(site);
+            siteBytes[siteId] += size;
+            siteBlocks[siteId]++;
+            siteAllocations[siteId]++;
+            if (table == 0)
+                table = newTable(capacity);
+            else if (count * 2 >= capacity)
+                resize();
+            insert(address, size, now, siteId);
+        }
+    }
+
+    synchronized void freed(long address) {
+        if (table == 0)
+            return;
+        long entry = find(address);
+        // not allocated while tracking
+        if (entry == 0)
+            return;
+        int siteId = UNSAFE.getInt(entry + SITE);
+        siteBytes[siteId] -= UNSAFE.getLong(entry + SIZE);
+        siteBlocks[siteId]--;
+        remove(entry);
+    }
+
+    private int siteId(String site) {
+        Integer id = siteIds.get(site);
+        if (id != null)
+            return id;
+        int siteId = sites.size();
+        sites.add(site);
+        siteIds.put(site, siteId);
+        if (siteId >= siteBytes.length) {
+            siteBytes = Arrays.copyOf(siteBytes, siteId * 2);
+            siteBlocks = Arrays.copyOf(siteBlocks, siteId * 2);
+            siteAllocations = Arrays.copyOf(siteAllocations, siteId * 2);
+        }
+        return siteId;
+    }
+
+    private long slot(long address) {
+        return table + (Maths.hash64(address) & (capacity - 1)) * ENTRY_SIZE;
+    }
+
+    private long next(long entry) {
+        entry += ENTRY_SIZE;
+        return entry == table + (long) capacity * ENTRY_SIZE ? table : entry;
+    }
+
+    private void insert(long address, long size, long time, int siteId) {
+        long entry = slot(address);
+        while (UNSAFE.getLong(entry) != 0)
+            entry = next(entry);
+        UNSAFE.putLong(entry, address);
+        UNSAFE.putLong(entry + SIZE, size);
+        UNSAFE.putLong(entry + TIME, time);
+        UNSAFE.putInt(entry + SITE, siteId);
+        count++;
+    }
+
+    private long find(long address) {
+        for (long entry = slot(address); ; entry = next(entry)) {
+            long a = UNSAFE.getLong(entry);
+            if (a == address)
+                return entry;
+            if (a == 0)
+                return 0;
+        }
+    }
+
+    // backward shift deletion so no tombstones are needed.
+    private void remove(long entry) {
+        long hole = entry;
+        for (long e = next(entry); ; e = next(e)) {
+            long a = UNSAFE.getLong(e);
+            if (a == 0)
+                break;
+            long home = slot(a);
+            // move e into the hole if its home slot is not cyclically between the hole and e.
+            boolean between = hole <= e ? hole < home && home <= e : hole < home || home <= e;
+            if (!between) {
+                UNSAFE.copyMemory(e, hole, ENTRY_SIZE);
+                hole = e;
+            }
+        }
+        UNSAFE.setMemory(hole, ENTRY_SIZE, (byte) 0);
+        count--;
+    }
+
+    private void resize() {
+        long oldTable = table;
+        int oldCapacity = capacity;
+        capacity *= 2;
+        table = newTable(capacity);
+        count = 0;
+        for (int i = 0; i < oldCapacity; i++) {
+            long entry = oldTable + (long) i * ENTRY_SIZE;
+            long address = UNSAFE.getLong(entry);
+            if (address != 0)
+                insert(address, UNSAFE.getLong(entry + SIZE), UNSAFE.getLong(entry + TIME), UNSAFE.getInt(entry + SITE));
+        }
+        UNSAFE.freeMemory(oldTable);
+    }
+
+    /**
+     * @return the number of blocks allocated while tracking which have not been freed.
+     */
+    public synchronized int liveBlockCount() {
+        return count;
+    }
+
+    /**
+     * @param top the maximum number of call sites to return
+     * @return the call sites with the most native memory currently allocated, largest first.
+     */
+    @NotNull
+    public synchronized List<CallSite> topConsumers(int top) {
+        List<CallSite> list = new ArrayList<>();
+        for (int i = 0; i < sites.size(); i++)
+            if (siteBlocks[i] > 0)
+                list.add(new CallSite(sites.get(i), siteBytes[i], siteBlocks[i], siteAllocations[i]));
+        list.sort(Comparator.comparingLong((CallSite cs) -> cs.bytes).reversed());
+        return list.size() > top ? new ArrayList<>(list.subList(0, top)) : list;
+    }
+
+    /**
+     * Blocks which have been live for a long time are candidates for leaks.
+     *
+     * @param minAgeMillis only include blocks allocated at least this long ago.
+     * @return the blocks still allocated, oldest first.
+     */
+    @NotNull
+    public synchronized List<Block> liveBlocks(long minAgeMillis) {
+        long cutOff = System.currentTimeMillis() - minAgeMillis;
+        List<Block> list = new ArrayList<>();
+        for (int i = 0; table != 0 && i < capacity; i++) {
+            long entry = table + (long) i * ENTRY_SIZE;
+            long address = UNSAFE.getLong(entry);
+            long time = UNSAFE.getLong(entry + TIME);
+            if (address != 0 && time <= cutOff)
+                list.add(new Block(address, UNSAFE.getLong(entry + SIZE), time, sites.get(UNSAFE.getInt(entry + SITE))));
+        }
+        list.sort(Comparator.comparingLong((Block b) -> b.allocatedMillis));
+        return list;
+    }
+
+    /**
+     * @param top the maximum number of call sites and blocks to include
+     * @param minAgeMillis the minimum age of a block to report as possibly leaked.
+     * @return a human readable report of the top consumers and oldest blocks.
+     */
+    @NotNull
+    public String report(int top, long minAgeMillis) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Native memory used: ").append(UnsafeMemory.INSTANCE.nativeMemoryUsed() >> 10).append(" KiB, tracked blocks: ").append(liveBlockCount());
+        sb.append("\nTop consumers:");
+        for (CallSite cs : topConsumers(top))
+            sb.append("\n\t").append(cs);
+        List<Block> blocks = liveBlocks(minAgeMillis);
+        sb.append("\nBlocks older than ").append(minAgeMillis).append(" ms: ").append(blocks.size());
+        for (Block block : blocks.subList(0, Math.min(top, blocks.size())))
+            sb.append("\n\t").append(block);
+        return sb.toString();
+    }
+
+    public static final class CallSite {
+        public final String site;
+        public final long bytes;
+        public final long blocks;
+        public final long allocations;
+
+        CallSite(String site, long bytes, long blocks, long allocations) {
+            this.site = site;
+            this.bytes = bytes;
+            this.blocks = blocks;
+            this.allocations = allocations;
+        }
+
+        @Override
+        public String toString() {
+            return bytes + " bytes in " + blocks + " blocks (" + allocations + " allocations) at " + site;
+        }
+    }
+
+    public static final class Block {
+        public final long address;
+        public final long size;
+        public final long allocatedMillis;
+        public final String site;
+
+        Block(long address, long size, long allocatedMillis, String site) {
+            this.address = address;
+            this.size = size;
+            this.allocatedMillis = allocatedMillis;
+            this.site = site;
+        }
+
+        @Override
+        public String toString() {
+            return size + " bytes at 0x" + Long.toHexString(address) + " allocated " + (System.currentTimeMillis() - allocatedMillis) + " ms ago at " + site;
+        }
+    }
+}
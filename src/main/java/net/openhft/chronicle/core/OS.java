@@ -29,6 +29,8 @@ import java.lang.reflect.Method;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Scanner;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -360,6 +362,219 @@ public enum OS {
         }
     }
 
+    /**
+     * Map a region of a file into memory, applying options once mapped.
+     *
+     * @param fileChannel to map
+     * @param mode        of access
+     * @param start       offset within a file
+     * @param size        of region to map.
+     * @param options     to apply to the pages of the mapping
+     * @return the address of the memory mapping.
+     * @throws IOException              if the mapping fails
+     * @throws IllegalArgumentException if the arguments are not valid
+     */
+    public static long map(@NotNull FileChannel fileChannel, FileChannel.MapMode mode, long start, long size, MemoryOption... options)
+            throws IOException, IllegalArgumentException {
+        long address = map(fileChannel, mode, start, size);
+        long size2 = pageAlign(size);
+        for (MemoryOption option : options) {
+            switch (option) {
+                case HUGE_PAGES:
+                    adviseHugePages(address, size2);
+                    break;
+                case PRETOUCH:
+                    // writing to a private mapping would copy the page.
+                    pretouch(address, size2, mode == FileChannel.MapMode.READ_WRITE);
+                    break;
+            }
+        }
+        return address;
+    }
+
+    /**
+     * Touch one location in every page of a region so the page faults happen now rather than on first access.
+     * A write doesn't change the contents as it is a compare and swap of 0 with 0.
+     *
+     * @param address of the region
+     * @param size    of the region
+     * @param write   fault in the pages for writing, otherwise only for reading.
+     */
+    public static void pretouch(long address, long size, boolean write) {
+        int pageSize = pageSize();
+        // the first whole long of each page.
+        long first = (address + 7) & ~7L;
+        long last = address + size - 8;
+        for (long pos = first; pos <= last; pos = (pos + pageSize) & -pageSize) {
+            if (write)
+                MEMORY.compareAndSwapLong(pos, 0L, 0L);
+            else
+                MEMORY.readVolatileByte(pos);
+        }
+    }
+
+    /**
+     * Ask for a region to use transparent huge pages with madvise(MADV_HUGEPAGE).
+     *
+     * @param address of the region
+     * @param size    of the region
+     * @return true if the advice was accepted, which doesn't mean huge pages will be used.
+     * @see #hugePageBytes(long, long)
+     */
+    public static boolean adviseHugePages(long address, long size) {
+        return advise(address, size, MemoryAdvice.HUGE_PAGE);
+    }
+
+    /**
+     * Give advice on how a region of memory will be used, with madvise.
+     * This needs Linux and JNA on the class path, otherwise it does nothing.
+     *
+     * @param address of the region, rounded down to a page
+     * @param size    of the region
+     * @param advice  to give
+     * @return true if the advice was accepted, false if it failed or is not supported.
+     */
+    public static boolean advise(long address, long size, @NotNull MemoryAdvice advice) {
+        if (!Posix.AVAILABLE)
+            return false;
+        long start = address & -pageSize();
+        return posixResult("madvise " + advice, Posix.madvise(start, size + address - start, advice.advice));
+    }
+
+    /**
+     * Lock a region into memory so it can't be paged out, with mlock.
+     * This needs Linux and JNA on the class path and is limited by ulimit -l
+     *
+     * @param address of the region
+     * @param size    of the region
+     * @return true if locked, false if it failed or is not supported.
+     */
+    public static boolean mlock(long address, long size) {
+        if (!Posix.AVAILABLE)
+            return false;
+        return posixResult("mlock", Posix.mlock(address, size));
+    }
+
+    /**
+     * Unlock a region locked with {@link #mlock(long, long)}
+     *
+     * @param address of the region
+     * @param size    of the region
+     * @return true if unlocked, false if it failed or is not supported.
+     */
+    public static boolean munlock(long address, long size) {
+        if (!Posix.AVAILABLE)
+            return false;
+        return posixResult("munlock", Posix.munlock(address, size));
+    }
+
+    /**
+     * Flush the changes to a memory mapped region to its file, with msync.
+     * This needs Linux and JNA on the class path.
+     *
+     * @param address of the region, rounded down to a page
+     * @param size    of the region
+     * @param async   if true, schedule the write and return, otherwise wait for the write to complete.
+     * @return true if successful, false if it failed or is not supported.
+     */
+    public static boolean msync(long address, long size, boolean async) {
+        if (!Posix.AVAILABLE)
+            return false;
+        long start = address & -pageSize();
+        return posixResult("msync", Posix.msync(start, size + address - start, async ? Posix.MS_ASYNC : Posix.MS_SYNC));
+    }
+
+    private static boolean posixResult(String call, int result) {
+        if (result == 0)
+            return true;
+        Jvm.debug().on(OS.class, call + " failed errno=" + Posix.lastError());
+        return false;
+    }
+
+    /**
+     * @return the transparent huge page setting e.g. "always", "madvise" or "never", or "unknown" if not Linux.
+     */
+    @NotNull
+    public static String transparentHugePages() {
+        if (isLinux()) {
+            try {
+                String enabled = new String(Files.readAllBytes(Paths.get("/sys/kernel/mm/transparent_hugepage/enabled")));
+                int start = enabled.indexOf('[');
+                int end = enabled.indexOf(']');
+                if (start >= 0 && end > start)
+                    return enabled.substring(start + 1, end);
+            } catch (IOException e) {
+                Jvm.debug().on(OS.class, e);
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * Count the pages of a region which are resident in memory, using mincore.
+     * This needs Linux and JNA on the class path.
+     *
+     * @param address of the region, rounded down to a page
+     * @param size    of the region
+     * @return the number of resident pages, or -1 if this is not available.
+     */
+    public static long residentPages(long address, long size) {
+        if (!Posix.AVAILABLE)
+            return -1;
+        long start = address & -pageSize();
+        long length = size + address - start;
+        long pages = (length + pageSize() - 1) / pageSize();
+        long vec = MEMORY.allocate(pages);
+        try {
+            if (Posix.mincore(start, length, vec) != 0) {
+                Jvm.debug().on(OS.class, "mincore failed errno=" + Posix.lastError());
+                return -1;
+            }
+            long resident = 0;
+            for (long i = 0; i < pages; i++)
+                resident += MEMORY.readByte(vec + i) & 1;
+            return resident;
+        } finally {
+            MEMORY.freeMemory(vec, pages);
+        }
+    }
+
+    /**
+     * Report how much of the memory mappings which overlap a region is backed by huge pages, from /proc/self/smaps.
+     * As this is for whole mappings, it can include memory either side of the region.
+     *
+     * @param address of the region
+     * @param size    of the region
+     * @return the bytes in huge pages, or -1 if this is not available.
+     */
+    public static long hugePageBytes(long address, long size) {
+        if (!isLinux())
+            return -1;
+        long end = address + size;
+        long total = 0;
+        boolean overlaps = false;
+        try (BufferedReader br = new BufferedReader(new FileReader("/proc/self/smaps"))) {
+            for (String line; (line = br.readLine()) != null; ) {
+                int dash = line.indexOf('-');
+                int space = line.indexOf(' ');
+                // a mapping starts with a line like 7f0000000000-7f0000200000 rw-p ...
+                if (dash > 0 && space > dash) {
+                    long from = Long.parseUnsignedLong(line.substring(0, dash), 16);
+                    long to = Long.parseUnsignedLong(line.substring(dash + 1, space), 16);
+                    overlaps = from < end && address < to;
+
+                } else if (overlaps && (line.startsWith("AnonHugePages:") || line.startsWith("ShmemPmdMapped:") || line.startsWith("FilePmdMapped:"))) {
+                    String kb = line.substring(line.indexOf(':') + 1).trim();
+                    total += Long.parseLong(kb.substring(0, kb.indexOf(' '))) << 10;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Jvm.debug().on(OS.class, e);
+            return -1;
+        }
+        return total;
+    }
+
     static long map0(@NotNull FileChannel fileChannel, int imode, long start, long size) throws IOException {
         MethodHandle map0 = MAP0_MH.get(fileChannel.getClass());
         final long address = invokeFileChannelMap0(map0, fileChannel, imode, start, size, oome1 -> {
@@ -376,6 +591,7 @@ public enum OS {
             });
         });
         memoryMapped.addAndGet(size);
+        MappedRegions.mapped(fileChannel, imode, start, address, size);
         return address;
     }
 
@@ -387,15 +603,22 @@ public enum OS {
      * @throws IOException if the unmap fails.
      */
     public static void unmap(long address, long size) throws IOException {
+        MappedRegion region = MappedRegions.unmapping(address);
         try {
             final long size2 = pageAlign(size);
             int n = (int) UNMAPP0_MH.invokeExact(address, size2);
             memoryMapped.addAndGet(-size2);
         } catch (Throwable e) {
+            MappedRegions.unmapFailed(address, region);
             throw asAnIOException(e);
         }
     }
 
+    /**
+     * @return the total size of the memory mappings made via {@link #map(FileChannel, FileChannel.MapMode, long, long)}
+     * and not yet unmapped.
+     * @see MappedRegions#snapshot()
+     */
     public static long memoryMapped() {
         return memoryMapped.get();
     }
@@ -421,6 +644,20 @@ public enum OS {
         return imode;
     }
 
+    @NotNull
+    static FileChannel.MapMode modeFor(int imode) {
+        switch (imode) {
+            case MAP_RO:
+                return FileChannel.MapMode.READ_ONLY;
+            case MAP_RW:
+                return FileChannel.MapMode.READ_WRITE;
+            case MAP_PV:
+                return FileChannel.MapMode.PRIVATE;
+            default:
+                throw new IllegalArgumentException("Unknown mode " + imode);
+        }
+    }
+
     /**
      * Get the space actually used by a file.
      *
@@ -481,6 +718,9 @@ public enum OS {
         }
     }
 
+    /**
+     * Unmaps a region when run, on an {@link AsyncUnmapper} if -Dunmap.async=true
+     */
     public static class Unmapper implements Runnable {
         private final long size;
 
@@ -499,7 +739,10 @@ public enum OS {
                 return;
 
             try {
-                unmap(address, size);
+                if (AsyncUnmapper.ENABLED)
+                    AsyncUnmapper.instance().unmap(address, size);
+                else
+                    unmap(address, size);
                 address = 0;
 
             } catch (@NotNull IOException e) {
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+import com.sun.jna.Native;
+
+/**
+ * Calls to libc on Linux via JNA direct mapping. JNA is an optional dependency, if it is not on the class path or
+ * this is not 64-bit Linux, {@link #AVAILABLE} is false and the methods must not be called.
+ * <p>
+ * Addresses and lengths are passed as longs which matches the 64-bit Linux ABI for pointers and size_t.
+ */
+enum Posix {
+    ;
+    static final int MS_ASYNC = 1;
+    static final int MS_SYNC = 4;
+
+    static final boolean AVAILABLE = register();
+
+    private static boolean register() {
+        if (!OS.isLinux() || !OS.is64Bit())
+            return false;
+        try {
+            Native.register(Posix.class, "c");
+            return true;
+        } catch (Throwable t) {
+            Jvm.debug().on(Posix.class, "libc not available via JNA: " + t);
+            return false;
+        }
+    }
+
+    static int lastError() {
+        return Native.getLastError();
+    }
+
+    static native int madvise(long address, long length, int advice);
+
+    static native int mlock(long address, long length);
+
+    static native int munlock(long address, long length);
+
+    static native int msync(long address, long length, int flags);
+
+    static native int mincore(long address, long length, long vec);
+}
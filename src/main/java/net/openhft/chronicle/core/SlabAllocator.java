@@ -0,0 +1,296 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+import net.openhft.chronicle.core.io.Closeable;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Allocates fixed size blocks of native memory carved out of large regions obtained from {@link Memory#allocate(long)}.
+ * <p>
+ * A request is rounded up to the smallest size class which fits. Freed blocks go to a free list local to the
+ * freeing thread, and are shared via a per size class free list when that overflows. The regions are only returned
+ * to the {@link Memory} on {@link #releaseAll()} or {@link #close()}, so {@link Memory#nativeMemoryUsed()} includes
+ * the reserved regions rather than the blocks in use.
+ */
+public class SlabAllocator implements Closeable {
+    private static final int CACHE_SIZE = 64;
+
+    @NotNull
+    private final Memory memory;
+    private final long regionSize;
+    @NotNull
+    private final SizeClass[] sizeClasses;
+    private final ThreadLocal<Cache> cacheTL = new ThreadLocal<>();
+    private final LongAdder usedBytes = new LongAdder();
+    private final LongAdder allocations = new LongAdder();
+    private long[] regions = new long[16];
+    private int regionCount;
+    private volatile int epoch;
+    private volatile boolean closed;
+
+    /**
+     * @param memory     to allocate regions from
+     * @param regionSize the size of each region, at least the largest size class
+     * @param blockSizes the size classes, each is rounded up to a multiple of 8 bytes
+     */
+    public SlabAllocator(@NotNull Memory memory, long regionSize, @NotNull int... blockSizes) {
+        if (blockSizes.length == 0)
+            throw new IllegalArgumentException("At least one block size is required");
+        int[] sizes = blockSizes.clone();
+        Arrays.sort(sizes);
+        if (sizes[0] <= 0)
+            throw new IllegalArgumentException("Invalid block size: " + sizes[0]);
+        if (regionSize < sizes[sizes.length - 1])
+            throw new IllegalArgumentException("regionSize " + regionSize + " is smaller than the largest block size " + sizes[sizes.length - 1]);
+        this.memory = memory;
+        this.regionSize = regionSize;
+        this.sizeClasses = new SizeClass[sizes.length];
+        for (int i = 0; i < sizes.length; i++)
+            sizeClasses[i] = new SizeClass((sizes[i] + 7) & ~7);
+    }
+
+    /**
+     * Allocate a block of at least size bytes.
+     *
+     * @param size required
+     * @return the address of the block
+     * @throws IllegalArgumentException if the size is larger than the largest size class
+     */
+    public long allocate(long size) throws IllegalArgumentException {
+        int sc = sizeClassFor(size);
+        Cache cache = cache();
+        long address = cache.pop(sc);
+        if (address == 0)
+            address = refill(cache, sc);
+        usedBytes.add(sizeClasses[sc].blockSize);
+        allocations.increment();
+        return address;
+    }
+
+    /**
+     * Return a block to this allocator.
+     *
+     * @param address of the block
+     * @param size    as passed to allocate
+     */
+    public void freeMemory(long address, long size) {
+        int sc = sizeClassFor(size);
+        Cache cache = cache();
+        if (!cache.push(sc, address)) {
+            sizeClasses[sc].spill(cache, sc);
+            cache.push(sc, address);
+        }
+        usedBytes.add(-sizeClasses[sc].blockSize);
+    }
+
+    /**
+     * @param size requested
+     * @return the size of the block which would be allocated for this size.
+     */
+    public int blockSizeFor(long size) {
+        return sizeClasses[sizeClassFor(size)].blockSize;
+    }
+
+    private int sizeClassFor(long size) {
+        for (int i = 0; i < sizeClasses.length; i++)
+            if (size <= sizeClasses[i].blockSize)
+                return i;
+        throw new IllegalArgumentException("Size " + size + " is larger than the largest block size " + sizeClasses[sizeClasses.length - 1].blockSize);
+    }
+
+    @NotNull
+    private Cache cache() {
+        if (closed)
+            throw new IllegalStateException("Closed");
+        Cache cache = cacheTL.get();
+        if (cache == null)
+            cacheTL.set(cache = new Cache(sizeClasses.length));
+        int epoch = this.epoch;
+        // blocks cached before a releaseAll() are no longer valid.
+        if (cache.epoch != epoch)
+            cache.clear(epoch);
+        return cache;
+    }
+
+    private long refill(@NotNull Cache cache, int sc) {
+        SizeClass sizeClass = sizeClasses[sc];
+        synchronized (sizeClass) {
+            if (sizeClass.take(cache, sc, CACHE_SIZE / 2) > 0)
+                return cache.pop(sc);
+        }
+        // carving can need a new region, so lock this before the size class, in the same order as releaseAll().
+        synchronized (this) {
+            synchronized (sizeClass) {
+                if (sizeClass.take(cache, sc, CACHE_SIZE / 2) == 0) {
+                    long blockSize = sizeClass.blockSize;
+                    for (int i = 0; i < CACHE_SIZE / 2; i++) {
+                        if (sizeClass.next + blockSize > sizeClass.end) {
+                            sizeClass.next = newRegion();
+                            sizeClass.end = sizeClass.next + regionSize;
+                        }
+                        cache.push(sc, sizeClass.next);
+                        sizeClass.next += blockSize;
+                    }
+                }
+            }
+        }
+        return cache.pop(sc);
+    }
+
+    private synchronized long newRegion() {
+        long address = memory.allocate(regionSize);
+        if (regionCount == regions.length)
+            regions = Arrays.copyOf(regions, regionCount * 2);
+        regions[regionCount++] = address;
+        return address;
+    }
+
+    /**
+     * Free all the regions at once. Any block allocated before this call must not be used afterwards.
+     */
+    public synchronized void releaseAll() {
+        for (SizeClass sizeClass : sizeClasses) {
+            synchronized (sizeClass) {
+                sizeClass.clear();
+            }
+        }
+        for (int i = 0; i < regionCount; i++)
+            memory.freeMemory(regions[i], regionSize);
+        regionCount = 0;
+        usedBytes.reset();
+        epoch++;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        releaseAll();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return the number of bytes in blocks currently allocated, rounded up to their size class.
+     */
+    public long usedBytes() {
+        return usedBytes.sum();
+    }
+
+    /**
+     * @return the number of bytes of native memory held in regions.
+     */
+    public synchronized long reservedBytes() {
+        return regionCount * regionSize;
+    }
+
+    public synchronized int regionCount() {
+        return regionCount;
+    }
+
+    /**
+     * @return the number of calls to allocate since this was created.
+     */
+    public long allocations() {
+        return allocations.sum();
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "SlabAllocator{" +
+                "blockSizes=" + Arrays.toString(Arrays.stream(sizeClasses).mapToInt(sc -> sc.blockSize).toArray()) +
+                ", regionSize=" + regionSize +
+                ", regions=" + regionCount() +
+                ", usedBytes=" + usedBytes() +
+                ", reservedBytes=" + reservedBytes() +
+                ", allocations=" + allocations() +
+                '}';
+    }
+
+    static final class SizeClass {
+        final int blockSize;
+        // the shared free list and the unused part of the current region, guarded by this.
+        long[] free = new long[CACHE_SIZE];
+        int freeCount;
+        long next;
+        long end;
+
+        SizeClass(int blockSize) {
+            this.blockSize = blockSize;
+        }
+
+        int take(@NotNull Cache cache, int sc, int max) {
+            int n = Math.min(max, freeCount);
+            for (int i = 0; i < n; i++)
+                cache.push(sc, free[--freeCount]);
+            return n;
+        }
+
+        synchronized void spill(@NotNull Cache cache, int sc) {
+            for (int i = 0; i < CACHE_SIZE / 2; i++) {
+                if (freeCount == free.length)
+                    free = Arrays.copyOf(free, freeCount * 2);
+                free[freeCount++] = cache.pop(sc);
+            }
+        }
+
+        void clear() {
+            freeCount = 0;
+            next = end = 0;
+        }
+    }
+
+    static final class Cache {
+        final long[][] blocks;
+        final int[] counts;
+        int epoch;
+
+        Cache(int sizeClasses) {
+            blocks = new long[sizeClasses][CACHE_SIZE];
+            counts = new int[sizeClasses];
+        }
+
+        long pop(int sc) {
+            int count = counts[sc];
+            if (count == 0)
+                return 0;
+            counts[sc] = --count;
+            return blocks[sc][count];
+        }
+
+        boolean push(int sc, long address) {
+            int count = counts[sc];
+            if (count == CACHE_SIZE)
+                return false;
+            blocks[sc][count] = address;
+            counts[sc] = count + 1;
+            return true;
+        }
+
+        void clear(int epoch) {
+            Arrays.fill(counts, 0);
+            this.epoch = epoch;
+        }
+    }
+}
@@ -18,9 +18,11 @@ package net.openhft.chronicle.core;
 
 import net.openhft.chronicle.core.annotation.ForceInline;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import sun.misc.Unsafe;
 
 import java.lang.reflect.Field;
+import java.nio.ByteOrder;
 import java.util.concurrent.atomic.AtomicLong;
 
 @SuppressWarnings("unchecked")
@@ -34,6 +36,11 @@ public enum UnsafeMemory implements Memory {
     // copyMemory method. A limit is imposed to allow for safepoint polling
     // during a large copy
     static final long UNSAFE_COPY_THRESHOLD = 1024L * 1024L;
+    static final boolean IS_LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long ONE_BYTES = 0x0101010101010101L;
+    private static final long HASH_M0 = 0x5bc80bad5bc80badL;
+    private static final long HASH_M1 = 0xea7585d7ea7585d7L;
 
     static {
         try {
@@ -45,6 +52,8 @@ public enum UnsafeMemory implements Memory {
     }
 
     private final AtomicLong nativeMemoryUsed = new AtomicLong();
+    @Nullable
+    private final NativeMemoryTracker tracker = NativeMemoryTracker.ENABLED ? new NativeMemoryTracker() : null;
 
     private static int retryReadVolatileInt(long address, int value) {
         int value2 = UNSAFE.getIntVolatile(null, address);
@@ -120,10 +129,81 @@ public enum UnsafeMemory implements Memory {
         UNSAFE.setMemory(address, size, b);
     }
 
+    @Override
+    public int compareMemory(long address, long address2, long length) {
+        long i = mismatch(address, address2, length);
+        if (i < 0)
+            return 0;
+        return (UNSAFE.getByte(address + i) & 0xFF) - (UNSAFE.getByte(address2 + i) & 0xFF);
+    }
+
+    @Override
+    public long mismatch(long address, long address2, long length) {
+        long i = 0;
+        for (; i <= length - 8; i += 8) {
+            long diff = UNSAFE.getLong(address + i) ^ UNSAFE.getLong(address2 + i);
+            if (diff != 0)
+                return i + firstByte(diff);
+        }
+        for (; i < length; i++)
+            if (UNSAFE.getByte(address + i) != UNSAFE.getByte(address2 + i))
+                return i;
+        return -1;
+    }
+
+    @Override
+    public long indexOf(long address, long length, byte b) {
+        long pattern = (b & 0xFFL) * ONE_BYTES;
+        long i = 0;
+        for (; i <= length - 8; i += 8) {
+            long zeros = zeroBytes(UNSAFE.getLong(address + i) ^ pattern);
+            if (zeros != 0)
+                return i + firstByte(zeros);
+        }
+        for (; i < length; i++)
+            if (UNSAFE.getByte(address + i) == b)
+                return i;
+        return -1;
+    }
+
+    @Override
+    public long hash64(long address, long length) {
+        long h = length * HASH_M1;
+        long i = 0;
+        for (; i <= length - 8; i += 8) {
+            long l = UNSAFE.getLong(address + i);
+            h = (h + l) * HASH_M0 + (l >>> 32) * HASH_M1;
+        }
+        if (i < length) {
+            long l = 0;
+            for (; i < length; i++)
+                l = (l << 8) | (UNSAFE.getByte(address + i) & 0xFF);
+            h = (h + l) * HASH_M0 + (l >>> 32) * HASH_M1;
+        }
+        return Maths.agitate(h ^ (h >>> 31));
+    }
+
+    /**
+     * @return a word with the high bit set in each byte of {@code word} which is zero, and no other bits set.
+     */
+    private static long zeroBytes(long word) {
+        return ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+    }
+
+    /**
+     * @return the offset in memory of the first byte with a bit set in a non-zero word read with getLong.
+     */
+    private static int firstByte(long word) {
+        return (IS_LITTLE_ENDIAN ? Long.numberOfTrailingZeros(word) : Long.numberOfLeadingZeros(word)) >>> 3;
+    }
+
     @Override
     public void freeMemory(long address, long size) {
-        if (address != 0)
+        if (address != 0) {
+            if (NativeMemoryTracker.ENABLED)
+                tracker.freed(address);
             UNSAFE.freeMemory(address);
+        }
         nativeMemoryUsed.addAndGet(-size);
     }
 
@@ -136,6 +216,8 @@ public enum UnsafeMemory implements Memory {
             throw new OutOfMemoryError("Not enough free native memory, capacity attempted: " + capacity / 1024 + " KiB");
 
         nativeMemoryUsed.addAndGet(capacity);
+        if (NativeMemoryTracker.ENABLED)
+            tracker.allocated(address, capacity);
 
         return address;
     }
@@ -145,6 +227,14 @@ public enum UnsafeMemory implements Memory {
         return nativeMemoryUsed.get();
     }
 
+    /**
+     * @return the tracker of allocations by call site, or null unless enabled with -Dmemory.tracking=true
+     */
+    @Nullable
+    public NativeMemoryTracker tracker() {
+        return tracker;
+    }
+
     @Override
     @ForceInline
     public void writeByte(long address, byte b) {
@@ -379,6 +469,186 @@ public enum UnsafeMemory implements Memory {
         }
     }
 
+    @Override
+    public void readBooleans(long address, @NotNull boolean[] booleans, int offset, int length) {
+        checkBounds(booleans.length, offset, length);
+        copyMemory0(null, address, booleans, Unsafe.ARRAY_BOOLEAN_BASE_OFFSET + offset, length);
+    }
+
+    @Override
+    public void writeBooleans(long address, @NotNull boolean[] booleans, int offset, int length) {
+        checkBounds(booleans.length, offset, length);
+        copyMemory0(booleans, Unsafe.ARRAY_BOOLEAN_BASE_OFFSET + offset, null, address, length);
+    }
+
+    @Override
+    public void readBytes(long address, @NotNull byte[] bytes, int offset, int length) {
+        checkBounds(bytes.length, offset, length);
+        copyMemory0(null, address, bytes, Unsafe.ARRAY_BYTE_BASE_OFFSET + offset, length);
+    }
+
+    @Override
+    public void writeBytes(long address, @NotNull byte[] bytes, int offset, int length) {
+        checkBounds(bytes.length, offset, length);
+        copyMemory0(bytes, Unsafe.ARRAY_BYTE_BASE_OFFSET + offset, null, address, length);
+    }
+
+    @Override
+    public void readChars(long address, @NotNull char[] chars, int offset, int length, boolean swapBytes) {
+        checkBounds(chars.length, offset, length);
+        long arrayOffset = Unsafe.ARRAY_CHAR_BASE_OFFSET + ((long) offset << 1);
+        if (swapBytes)
+            readSwapped2(address, chars, arrayOffset, length);
+        else
+            copyMemory0(null, address, chars, arrayOffset, (long) length << 1);
+    }
+
+    @Override
+    public void writeChars(long address, @NotNull char[] chars, int offset, int length, boolean swapBytes) {
+        checkBounds(chars.length, offset, length);
+        long arrayOffset = Unsafe.ARRAY_CHAR_BASE_OFFSET + ((long) offset << 1);
+        if (swapBytes)
+            writeSwapped2(address, chars, arrayOffset, length);
+        else
+            copyMemory0(chars, arrayOffset, null, address, (long) length << 1);
+    }
+
+    @Override
+    public void readShorts(long address, @NotNull short[] shorts, int offset, int length, boolean swapBytes) {
+        checkBounds(shorts.length, offset, length);
+        long arrayOffset = Unsafe.ARRAY_SHORT_BASE_OFFSET + ((long) offset << 1);
+        if (swapBytes)
+            readSwapped2(address, shorts, arrayOffset, length);
+        else
+            copyMemory0(null, address, shorts, arrayOffset, (long) length << 1);
+    }
+
+    @Override
+    public void writeShorts(long address, @NotNull short[] shorts, int offset, int length, boolean swapBytes) {
+        checkBounds(shorts.length, offset, length);
+        long arrayOffset = Unsafe.ARRAY_SHORT_BASE_OFFSET + ((long) offset << 1);
+        if (swapBytes)
+            writeSwapped2(address, shorts, arrayOffset, length);
+        else
+            copyMemory0(shorts, arrayOffset, null, address, (long) length << 1);
+    }
+
+    @Override
+    public void readInts(long address, @NotNull int[] ints, int offset, int length, boolean swapBytes) {
+        checkBounds(ints.length, offset, length);
+        long arrayOffset = Unsafe.ARRAY_INT_BASE_OFFSET + ((long) offset << 2);
+        if (swapBytes)
+            readSwapped4(address, ints, arrayOffset, length);
+        else
+            copyMemory0(null, address, ints, arrayOffset, (long) length << 2);
+    }
+
+    @Override
+    public void writeInts(long address, @NotNull int[] ints, int offset, int length, boolean swapBytes) {
+        checkBounds(ints.length, offset, length);
+        long arrayOffset = Unsafe.ARRAY_INT_BASE_OFFSET + ((long) offset << 2);
+        if (swapBytes)
+            writeSwapped4(address, ints, arrayOffset, length);
+        else
+            copyMemory0(ints, arrayOffset, null, address, (long) length << 2);
+    }
+
+    @Override
+    public void readFloats(long address, @NotNull float[] floats, int offset, int length, boolean swapBytes) {
+        checkBounds(floats.length, offset, length);
+        long arrayOffset = Unsafe.ARRAY_FLOAT_BASE_OFFSET + ((long) offset << 2);
+        if (swapBytes)
+            readSwapped4(address, floats, arrayOffset, length);
+        else
+            copyMemory0(null, address, floats, arrayOffset, (long) length << 2);
+    }
+
+    @Override
+    public void writeFloats(long address, @NotNull float[] floats, int offset, int length, boolean swapBytes) {
+        checkBounds(floats.length, offset, length);
+        long arrayOffset = Unsafe.ARRAY_FLOAT_BASE_OFFSET + ((long) offset << 2);
+        if (swapBytes)
+            writeSwapped4(address, floats, arrayOffset, length);
+        else
+            copyMemory0(floats, arrayOffset, null, address, (long) length << 2);
+    }
+
+    @Override
+    public void readLongs(long address, @NotNull long[] longs, int offset, int length, boolean swapBytes) {
+        checkBounds(longs.length, offset, length);
+        long arrayOffset = Unsafe.ARRAY_LONG_BASE_OFFSET + ((long) offset << 3);
+        if (swapBytes)
+            readSwapped8(address, longs, arrayOffset, length);
+        else
+            copyMemory0(null, address, longs, arrayOffset, (long) length << 3);
+    }
+
+    @Override
+    public void writeLongs(long address, @NotNull long[] longs, int offset, int length, boolean swapBytes) {
+        checkBounds(longs.length, offset, length);
+        long arrayOffset = Unsafe.ARRAY_LONG_BASE_OFFSET + ((long) offset << 3);
+        if (swapBytes)
+            writeSwapped8(address, longs, arrayOffset, length);
+        else
+            copyMemory0(longs, arrayOffset, null, address, (long) length << 3);
+    }
+
+    @Override
+    public void readDoubles(long address, @NotNull double[] doubles, int offset, int length, boolean swapBytes) {
+        checkBounds(doubles.length, offset, length);
+        long arrayOffset = Unsafe.ARRAY_DOUBLE_BASE_OFFSET + ((long) offset << 3);
+        if (swapBytes)
+            readSwapped8(address, doubles, arrayOffset, length);
+        else
+            copyMemory0(null, address, doubles, arrayOffset, (long) length << 3);
+    }
+
+    @Override
+    public void writeDoubles(long address, @NotNull double[] doubles, int offset, int length, boolean swapBytes) {
+        checkBounds(doubles.length, offset, length);
+        long arrayOffset = Unsafe.ARRAY_DOUBLE_BASE_OFFSET + ((long) offset << 3);
+        if (swapBytes)
+            writeSwapped8(address, doubles, arrayOffset, length);
+        else
+            copyMemory0(doubles, arrayOffset, null, address, (long) length << 3);
+    }
+
+    private static void checkBounds(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length)
+            throw new ArrayIndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", array length: " + arrayLength);
+    }
+
+    // the swapped copies read and write whole elements as raw bits so float and double NaNs are preserved.
+    private static void readSwapped2(long address, Object array, long arrayOffset, int length) {
+        for (int i = 0; i < length; i++)
+            UNSAFE.putShort(array, arrayOffset + ((long) i << 1), Short.reverseBytes(UNSAFE.getShort(address + ((long) i << 1))));
+    }
+
+    private static void writeSwapped2(long address, Object array, long arrayOffset, int length) {
+        for (int i = 0; i < length; i++)
+            UNSAFE.putShort(address + ((long) i << 1), Short.reverseBytes(UNSAFE.getShort(array, arrayOffset + ((long) i << 1))));
+    }
+
+    private static void readSwapped4(long address, Object array, long arrayOffset, int length) {
+        for (int i = 0; i < length; i++)
+            UNSAFE.putInt(array, arrayOffset + ((long) i << 2), Integer.reverseBytes(UNSAFE.getInt(address + ((long) i << 2))));
+    }
+
+    private static void writeSwapped4(long address, Object array, long arrayOffset, int length) {
+        for (int i = 0; i < length; i++)
+            UNSAFE.putInt(address + ((long) i << 2), Integer.reverseBytes(UNSAFE.getInt(array, arrayOffset + ((long) i << 2))));
+    }
+
+    private static void readSwapped8(long address, Object array, long arrayOffset, int length) {
+        for (int i = 0; i < length; i++)
+            UNSAFE.putLong(array, arrayOffset + ((long) i << 3), Long.reverseBytes(UNSAFE.getLong(address + ((long) i << 3))));
+    }
+
+    private static void writeSwapped8(long address, Object array, long arrayOffset, int length) {
+        for (int i = 0; i < length; i++)
+            UNSAFE.putLong(address + ((long) i << 3), Long.reverseBytes(UNSAFE.getLong(array, arrayOffset + ((long) i << 3))));
+    }
+
     @Override
     @ForceInline
     public void writeOrderedLong(long address, long i) {
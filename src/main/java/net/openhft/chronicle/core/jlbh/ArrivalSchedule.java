@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.jlbh;
+
+/**
+ * Determines when each iteration of a benchmark is intended to start. The start time passed to the task is the
+ * intended time so the latency still includes any time spent waiting behind earlier iterations.
+ * <p>
+ * Implementations are called by one thread, see {@link ArrivalSchedules} for those provided.
+ */
+@FunctionalInterface
+public interface ArrivalSchedule {
+    /**
+     * @param meanIntervalNs the mean interval for the target throughput
+     * @return the nanoseconds between the intended start of the previous iteration and the next one.
+     */
+    long nextIntervalNs(long meanIntervalNs);
+}
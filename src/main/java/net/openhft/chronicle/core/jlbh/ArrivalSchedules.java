@@ -0,0 +1,218 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.jlbh;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/**
+ * The arrival schedules provided, to pass to {@link JLBHOptions#arrivalSchedule(Supplier)}
+ */
+public enum ArrivalSchedules {
+    ;
+
+    /**
+     * @return iterations evenly spaced at the mean interval, as when no schedule is set.
+     */
+    @NotNull
+    public static ArrivalSchedule evenlySpaced() {
+        return new EvenlySpaced();
+    }
+
+    /**
+     * Independent arrivals at the target throughput, i.e. exponentially distributed intervals.
+     *
+     * @param seed for the random intervals, so runs can be repeated
+     * @return the schedule
+     */
+    @NotNull
+    public static ArrivalSchedule poisson(long seed) {
+        return new Poisson(new SplittableRandom(seed));
+    }
+
+    /**
+     * Poisson schedules for each producer thread, each with its own stream of random intervals split from the seed.
+     * Supplying <code>poisson(seed)</code> to each producer would have them all arrive in lockstep.
+     *
+     * @param seed for the random intervals, so runs can be repeated
+     * @return the supplier to pass to {@link JLBHOptions#arrivalSchedule(Supplier)}
+     */
+    @NotNull
+    public static Supplier<ArrivalSchedule> poissonPerProducer(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        return () -> {
+            // SplittableRandom is not thread safe.
+            synchronized (random) {
+                return new Poisson(random.split());
+            }
+        };
+    }
+
+    /**
+     * Bursts of iterations at a multiple of the target throughput followed by a pause, so that the mean throughput is
+     * the target.
+     *
+     * @param burstLength     the number of iterations in each burst
+     * @param burstRateFactor the throughput during a burst as a multiple of the target throughput
+     * @return the schedule
+     */
+    @NotNull
+    public static ArrivalSchedule onOff(int burstLength, double burstRateFactor) {
+        if (burstLength < 1)
+            throw new IllegalArgumentException("burstLength must be at least 1, was " + burstLength);
+        if (burstRateFactor < 1)
+            throw new IllegalArgumentException("burstRateFactor must be at least 1, was " + burstRateFactor);
+        return new OnOff(burstLength, burstRateFactor);
+    }
+
+    /**
+     * Replay intervals, repeating from the start when they run out. The target throughput is ignored.
+     *
+     * @param intervalsNs between iterations in nanoseconds
+     * @return the schedule
+     */
+    @NotNull
+    public static ArrivalSchedule replay(@NotNull long... intervalsNs) {
+        if (intervalsNs.length == 0)
+            throw new IllegalArgumentException("No intervals to replay");
+        for (long interval : intervalsNs)
+            if (interval < 0)
+                throw new IllegalArgumentException("Intervals can't be negative, was " + interval);
+        return new Replay(intervalsNs.clone());
+    }
+
+    /**
+     * Replay intervals recorded in a file, one per line in nanoseconds. Blank lines and lines starting with # are
+     * ignored. The file is read once, so call this outside the Supplier passed to JLBHOptions and replay a copy.
+     *
+     * @param file of intervals
+     * @return the intervals, to pass to {@link #replay(long...)}
+     * @throws IOException              if the file can't be read
+     * @throws IllegalArgumentException if a line is not a number
+     */
+    @NotNull
+    public static long[] readIntervals(@NotNull File file) throws IOException, IllegalArgumentException {
+        long[] intervals = new long[1024];
+        int count = 0;
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            for (String line; (line = br.readLine()) != null; ) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                if (count == intervals.length)
+                    intervals = Arrays.copyOf(intervals, count * 2);
+                try {
+                    intervals[count++] = Long.parseLong(line);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(file + " has an invalid interval " + line, e);
+                }
+            }
+        }
+        return Arrays.copyOf(intervals, count);
+    }
+
+    static final class EvenlySpaced implements ArrivalSchedule {
+        @Override
+        public long nextIntervalNs(long meanIntervalNs) {
+            return meanIntervalNs;
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return "evenly spaced";
+        }
+    }
+
+    static final class Poisson implements ArrivalSchedule {
+        private final SplittableRandom random;
+
+        Poisson(@NotNull SplittableRandom random) {
+            this.random = random;
+        }
+
+        @Override
+        public long nextIntervalNs(long meanIntervalNs) {
+            // 1 - nextDouble() is never 0
+            return Math.round(-Math.log(1 - random.nextDouble()) * meanIntervalNs);
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return "Poisson";
+        }
+    }
+
+    static final class OnOff implements ArrivalSchedule {
+        private final int burstLength;
+        private final double burstRateFactor;
+        private int count;
+
+        OnOff(int burstLength, double burstRateFactor) {
+            this.burstLength = burstLength;
+            this.burstRateFactor = burstRateFactor;
+        }
+
+        @Override
+        public long nextIntervalNs(long meanIntervalNs) {
+            long burstInterval = Math.round(meanIntervalNs / burstRateFactor);
+            if (++count < burstLength)
+                return burstInterval;
+            count = 0;
+            // the pause after a burst which keeps the mean interval.
+            return burstLength * meanIntervalNs - (burstLength - 1) * burstInterval;
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return "bursts of " + burstLength + " at " + burstRateFactor + "x";
+        }
+    }
+
+    static final class Replay implements ArrivalSchedule {
+        @NotNull
+        private final long[] intervalsNs;
+        private int index;
+
+        Replay(@NotNull long[] intervalsNs) {
+            this.intervalsNs = intervalsNs;
+        }
+
+        @Override
+        public long nextIntervalNs(long meanIntervalNs) {
+            long interval = intervalsNs[index++];
+            if (index == intervalsNs.length)
+                index = 0;
+            return interval;
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return "replay of " + intervalsNs.length + " intervals";
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package net.openhft.chronicle.core.jlbh;
+
+import net.openhft.chronicle.core.annotation.NotNull;
+
+import java.time.Duration;
+
+class ImmutableAllocationResult implements JLBHResult.AllocationResult {
+
+    private final long allocatedBytes;
+    private final double allocatedBytesPerIteration;
+    private final long gcCount;
+    @NotNull
+    private final Duration gcTime;
+
+    ImmutableAllocationResult(long allocatedBytes, int iterations, long gcCount, long gcTimeMillis) {
+        this.allocatedBytes = allocatedBytes;
+        this.allocatedBytesPerIteration = iterations == 0 ? 0 : (double) allocatedBytes / iterations;
+        this.gcCount = gcCount;
+        this.gcTime = Duration.ofMillis(gcTimeMillis);
+    }
+
+    @Override
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public double allocatedBytesPerIteration() {
+        return allocatedBytesPerIteration;
+    }
+
+    @Override
+    public long gcCount() {
+        return gcCount;
+    }
+
+    @Override
+    @NotNull
+    public Duration gcTime() {
+        return gcTime;
+    }
+
+    @Override
+    public String toString() {
+        return "ImmutableAllocationResult{" +
+                "allocatedBytes=" + allocatedBytes +
+                ", allocatedBytesPerIteration=" + allocatedBytesPerIteration +
+                ", gcCount=" + gcCount +
+                ", gcTime=" + gcTime +
+                '}';
+    }
+}
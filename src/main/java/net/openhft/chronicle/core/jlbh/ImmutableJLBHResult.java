@@ -1,10 +1,16 @@
 package net.openhft.chronicle.core.jlbh;
 
 import net.openhft.chronicle.core.annotation.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
+import static java.util.Collections.unmodifiableList;
 import static java.util.Collections.unmodifiableMap;
 
 class ImmutableJLBHResult implements JLBHResult {
@@ -13,10 +19,20 @@ class ImmutableJLBHResult implements JLBHResult {
     private final ProbeResult endToEndProbeResult;
     @NotNull
     private final Map<String, ProbeResult> additionalProbeResults;
+    @Nullable
+    private final ProbeResult osJitterProbeResult;
+    @NotNull
+    private final List<AllocationResult> allocationResults;
 
     ImmutableJLBHResult(@NotNull ProbeResult endToEndProbeResult, @NotNull Map<String, ? extends ProbeResult> additionalProbeResults) {
+        this(endToEndProbeResult, additionalProbeResults, null, new ArrayList<>());
+    }
+
+    ImmutableJLBHResult(@NotNull ProbeResult endToEndProbeResult, @NotNull Map<String, ? extends ProbeResult> additionalProbeResults, @Nullable ProbeResult osJitterProbeResult, @NotNull List<AllocationResult> allocationResults) {
         this.endToEndProbeResult = endToEndProbeResult;
-        this.additionalProbeResults = unmodifiableMap(additionalProbeResults);
+        this.additionalProbeResults = unmodifiableMap(new TreeMap<>(additionalProbeResults));
+        this.osJitterProbeResult = osJitterProbeResult;
+        this.allocationResults = unmodifiableList(new ArrayList<>(allocationResults));
     }
 
     @Override
@@ -30,4 +46,22 @@ class ImmutableJLBHResult implements JLBHResult {
     public Optional<ProbeResult> probe(String probeName) {
         return Optional.ofNullable(additionalProbeResults.get(probeName));
     }
+
+    @Override
+    @NotNull
+    public Set<String> probeNames() {
+        return additionalProbeResults.keySet();
+    }
+
+    @Override
+    @NotNull
+    public Optional<ProbeResult> osJitter() {
+        return Optional.ofNullable(osJitterProbeResult);
+    }
+
+    @Override
+    @NotNull
+    public List<AllocationResult> eachRunAllocation() {
+        return allocationResults;
+    }
 }
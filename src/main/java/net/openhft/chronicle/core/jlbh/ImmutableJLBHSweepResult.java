@@ -0,0 +1,34 @@
+package net.openhft.chronicle.core.jlbh;
+
+import net.openhft.chronicle.core.annotation.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import static java.util.Collections.unmodifiableMap;
+
+class ImmutableJLBHSweepResult implements JLBHSweepResult {
+
+    @NotNull
+    private final Map<Integer, JLBHResult> results;
+    @NotNull
+    private final OptionalInt saturationThroughput;
+
+    ImmutableJLBHSweepResult(@NotNull Map<Integer, JLBHResult> results, @NotNull OptionalInt saturationThroughput) {
+        this.results = unmodifiableMap(new LinkedHashMap<>(results));
+        this.saturationThroughput = saturationThroughput;
+    }
+
+    @Override
+    @NotNull
+    public Map<Integer, JLBHResult> results() {
+        return results;
+    }
+
+    @Override
+    @NotNull
+    public OptionalInt saturationThroughput() {
+        return saturationThroughput;
+    }
+}
@@ -1,7 +1,9 @@
 package net.openhft.chronicle.core.jlbh;
 
 import net.openhft.chronicle.core.annotation.NotNull;
+import net.openhft.chronicle.core.util.Histogram;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static java.util.Collections.unmodifiableList;
@@ -11,9 +13,16 @@ class ImmutableProbeResult implements JLBHResult.ProbeResult {
 
     @NotNull
     private final List<JLBHResult.RunResult> runsSummary;
+    @NotNull
+    private final List<Histogram> runsHistogram;
 
     public ImmutableProbeResult(List<double[]> percentileRuns) {
+        this(percentileRuns, new ArrayList<>());
+    }
+
+    public ImmutableProbeResult(List<double[]> percentileRuns, List<Histogram> histogramRuns) {
         runsSummary = unmodifiableList(percentileRuns.stream().map(ImmutableRunResult::new).collect(toList()));
+        runsHistogram = unmodifiableList(new ArrayList<>(histogramRuns));
     }
 
     @NotNull
@@ -27,4 +36,10 @@ class ImmutableProbeResult implements JLBHResult.ProbeResult {
     public List<JLBHResult.RunResult> eachRunSummary() {
         return runsSummary;
     }
+
+    @NotNull
+    @Override
+    public List<Histogram> eachRunHistogram() {
+        return runsHistogram;
+    }
 }
@@ -21,16 +21,21 @@ import net.openhft.affinity.AffinityLock;
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.threads.EventHandler;
 import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
+import net.openhft.chronicle.core.util.AllocationMeter;
+import net.openhft.chronicle.core.util.ConcurrentHistogram;
 import net.openhft.chronicle.core.util.Histogram;
 import net.openhft.chronicle.core.util.NanoSampler;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
 import java.util.*;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -45,8 +50,13 @@ import java.util.stream.Collectors;
 public class JLBH implements NanoSampler {
     private static final Double[] NO_DOUBLES = {};
     private final SortedMap<String, Histogram> additionHistograms = new ConcurrentSkipListMap<>();
+    // used instead of the histograms above when there is more than one producer thread.
+    private final Map<String, ConcurrentHistogram> concurrentHistograms = new ConcurrentSkipListMap<>();
     // wait time between invocations in nanoseconds
     private final long latencyBetweenTasks;
+    // one for each producer thread, kept from run to run.
+    @NotNull
+    private final ArrivalSchedule[] arrivalSchedules;
     @NotNull
     private final JLBHOptions jlbhOptions;
     @NotNull
@@ -57,11 +67,28 @@ public class JLBH implements NanoSampler {
     @NotNull
     private final Map<String, List<double[]>> additionalPercentileRuns;
     @NotNull
+    private final List<double[]> osJitterPercentileRuns = new ArrayList<>();
+    // copies of the histograms of each run, for the result.
+    @NotNull
+    private final List<Histogram> histogramRuns = new ArrayList<>();
+    @NotNull
+    private final Map<String, List<Histogram>> additionalHistogramRuns = new TreeMap<>();
+    @NotNull
+    private final List<Histogram> osJitterHistogramRuns = new ArrayList<>();
+    @NotNull
+    private final List<JLBHResult.AllocationResult> allocationRuns = new ArrayList<>();
+    // bytes allocated by the thread(s) running the task in this run, when recording allocations.
+    private final AtomicLong runAllocatedBytes = new AtomicLong();
+    private long gcCountAtStartOfRun;
+    private long gcTimeAtStartOfRun;
+    @NotNull
     private final OSJitterMonitor osJitterMonitor = new OSJitterMonitor();
     @NotNull
     private Histogram endToEndHistogram = createHistogram();
     @NotNull
     private Histogram osJitterHistogram = createHistogram();
+    @Nullable
+    private final ConcurrentHistogram concurrentEndToEnd;
     private long noResultsReturned;
     @NotNull
     private AtomicBoolean warmUpComplete = new AtomicBoolean(false);
@@ -91,9 +118,12 @@ public class JLBH implements NanoSampler {
         this.resultConsumer = resultConsumer;
         if (jlbhOptions.jlbhTask == null) throw new IllegalStateException("jlbhTask must be set");
         latencyBetweenTasks = jlbhOptions.throughputTimeUnit.toNanos(1) / jlbhOptions.throughput;
+        arrivalSchedules = new ArrivalSchedule[Math.max(1, jlbhOptions.producerThreads)];
+        for (int p = 0; p < arrivalSchedules.length; p++)
+            arrivalSchedules[p] = jlbhOptions.arrivalSchedule.get();
         percentileRuns = new ArrayList<>();
         additionalPercentileRuns = new TreeMap<>();
-
+        concurrentEndToEnd = jlbhOptions.producerThreads > 1 ? createConcurrentHistogram(endToEndHistogram) : null;
     }
 
     /**
@@ -103,7 +133,15 @@ public class JLBH implements NanoSampler {
      * @return NanoSampler
      */
     public NanoSampler addProbe(String name) {
-        return additionHistograms.computeIfAbsent(name, n -> createHistogram());
+        Histogram histogram = additionHistograms.computeIfAbsent(name, n -> createHistogram());
+        if (concurrentEndToEnd == null)
+            return histogram;
+        return concurrentHistograms.computeIfAbsent(name, n -> createConcurrentHistogram(histogram));
+    }
+
+    @NotNull
+    private static ConcurrentHistogram createConcurrentHistogram(@NotNull Histogram histogram) {
+        return new ConcurrentHistogram(histogram.powersOf2(), histogram.fractionBits());
     }
 
     /**
@@ -111,40 +149,36 @@ public class JLBH implements NanoSampler {
      */
     public void start() {
         long warmupStart = initStartOSJitterMonitorWarmup();
+        if (jlbhOptions.producerThreads > 1) {
+            startProducers(warmupStart);
+            return;
+        }
 
         AffinityLock lock = jlbhOptions.acquireLock.get();
         try {
             for (int run = 0; run < jlbhOptions.runs; run++) {
                 long runStart = System.currentTimeMillis();
                 long startTimeNs = System.nanoTime();
+                long allocatedAtStart = startOfRun();
                 for (int i = 0; i < jlbhOptions.iterations; i++) {
 
                     if (i == 0 && run == 0) {
                         warmupComplete(warmupStart);
                         runStart = System.currentTimeMillis();
                         startTimeNs = System.nanoTime();
+                        allocatedAtStart = startOfRun();
                     } else if (jlbhOptions.accountForCoordinatedOmission) {
-                        startTimeNs += latencyBetweenTasks;
-                        long millis = (startTimeNs - System.nanoTime()) / 1000000 - 2;
-                        if (millis > 0) {
-                            Jvm.pause(millis);
-                        }
-                        Jvm.busyWaitUntil(startTimeNs);
+                        startTimeNs += arrivalSchedules[0].nextIntervalNs(latencyBetweenTasks);
+                        jlbhOptions.waitStrategy.waitUntil(startTimeNs);
 
                     } else {
-                        if (latencyBetweenTasks > 2e6) {
-                            long end = System.nanoTime() + latencyBetweenTasks;
-                            Jvm.pause(latencyBetweenTasks / 1_000_000 - 1);
-                            // account for jitter in Thread.sleep() and wait until a fixed point in time
-                            Jvm.busyWaitUntil(end);
-                        } else {
-                            Jvm.busyWaitMicros(latencyBetweenTasks / 1000);
-                        }
+                        jlbhOptions.waitStrategy.waitNanos(arrivalSchedules[0].nextIntervalNs(latencyBetweenTasks));
                         startTimeNs = System.nanoTime();
                     }
 
                     jlbhOptions.jlbhTask.run(startTimeNs);
                 }
+                addAllocatedSince(allocatedAtStart);
 
                 endOfRun(run, runStart);
             }
@@ -157,6 +191,88 @@ public class JLBH implements NanoSampler {
         endOfAllRuns();
     }
 
+    private void startProducers(long warmupStart) {
+        warmupComplete(warmupStart);
+        int producers = jlbhOptions.producerThreads;
+        for (int run = 0; run < jlbhOptions.runs; run++) {
+            long runStart = System.currentTimeMillis();
+            startOfRun();
+            // leave time for the threads to start.
+            long firstStartTimeNs = System.nanoTime() + 1_000_000;
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int iterations = jlbhOptions.iterations / producers + (p < jlbhOptions.iterations % producers ? 1 : 0);
+                long startTimeNs = firstStartTimeNs + p * latencyBetweenTasks;
+                ArrivalSchedule schedule = arrivalSchedules[p];
+                Thread thread = new Thread(() -> produce(schedule, startTimeNs, latencyBetweenTasks * producers, iterations), "jlbh-producer-" + p);
+                thread.start();
+                threads.add(thread);
+            }
+            try {
+                for (Thread thread : threads)
+                    thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            endOfRun(run, runStart);
+        }
+        endOfAllRuns();
+    }
+
+    private void produce(@NotNull ArrivalSchedule schedule, long startTimeNs, long meanInterval, int iterations) {
+        AffinityLock lock = jlbhOptions.acquireLock.get();
+        long allocatedAtStart = threadAllocatedBytes();
+        try {
+            for (int i = 0; i < iterations; i++, startTimeNs += schedule.nextIntervalNs(meanInterval)) {
+                jlbhOptions.waitStrategy.waitUntil(startTimeNs);
+                jlbhOptions.jlbhTask.run(jlbhOptions.accountForCoordinatedOmission ? startTimeNs : System.nanoTime());
+            }
+            addAllocatedSince(allocatedAtStart);
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * @return the bytes allocated by this thread so far, if recording allocations.
+     */
+    private long startOfRun() {
+        if (!jlbhOptions.recordAllocations)
+            return 0;
+        runAllocatedBytes.set(0);
+        gcCountAtStartOfRun = gcCount();
+        gcTimeAtStartOfRun = gcTimeMillis();
+        return threadAllocatedBytes();
+    }
+
+    private void addAllocatedSince(long allocatedAtStart) {
+        if (jlbhOptions.recordAllocations)
+            runAllocatedBytes.addAndGet(threadAllocatedBytes() - allocatedAtStart);
+    }
+
+    private long threadAllocatedBytes() {
+        return jlbhOptions.recordAllocations ? AllocationMeter.threadAllocatedBytes() : 0;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, gc.getCollectionCount());
+        return count;
+    }
+
+    private static long gcTimeMillis() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            time += Math.max(0, gc.getCollectionTime());
+        return time;
+    }
+
+    private long endToEndCount() {
+        return concurrentEndToEnd == null ? endToEndHistogram.totalCount() : concurrentEndToEnd.totalCount();
+    }
+
     private void warmupComplete(long warmupStart) {
         while (!warmUpComplete.get()) {
             Jvm.pause(2000);
@@ -194,20 +310,34 @@ public class JLBH implements NanoSampler {
         consumeResults();
 
         jlbhOptions.jlbhTask.complete();
+        osJitterMonitor.terminate();
     }
 
     private void endOfRun(int run, long runStart) {
-        while (endToEndHistogram.totalCount() < jlbhOptions.iterations) {
+        while (endToEndCount() < jlbhOptions.iterations) {
             Thread.yield();
         }
         long totalRunTime = System.currentTimeMillis() - runStart;
+        if (concurrentEndToEnd != null) {
+            concurrentEndToEnd.snapshot(endToEndHistogram);
+            concurrentEndToEnd.reset();
+            concurrentHistograms.forEach((key, value) -> {
+                value.snapshot(additionHistograms.get(key));
+                value.reset();
+            });
+        }
 
         percentileRuns.add(endToEndHistogram.getPercentiles());
+        histogramRuns.add(copyOf(endToEndHistogram));
 
         printStream.println("-------------------------------- BENCHMARK RESULTS (RUN " + (run + 1) + ") --------------------------------------------------------");
         printStream.println("Run time: " + totalRunTime / 1000.0 + "s");
         printStream.println("Correcting for co-ordinated:" + jlbhOptions.accountForCoordinatedOmission);
         printStream.println("Target throughput:" + jlbhOptions.throughput + "/" + timeUnitToString(jlbhOptions.throughputTimeUnit) + " = 1 message every " + (latencyBetweenTasks / 1000) + "us");
+        if (!(arrivalSchedules[0] instanceof ArrivalSchedules.EvenlySpaced))
+            printStream.println("Arrival schedule: " + arrivalSchedules[0]);
+        if (concurrentEndToEnd != null)
+            printStream.println("Producer threads: " + jlbhOptions.producerThreads + " = 1 message every " + (latencyBetweenTasks * jlbhOptions.producerThreads / 1000) + "us each");
         printStream.printf("%-48s", String.format("End to End: (%,d)", endToEndHistogram.totalCount()));
         printStream.println(endToEndHistogram.toMicrosFormat());
 
@@ -216,15 +346,28 @@ public class JLBH implements NanoSampler {
                 List<double[]> ds = additionalPercentileRuns.computeIfAbsent(key,
                         i -> new ArrayList<>());
                 ds.add(value.getPercentiles());
+                additionalHistogramRuns.computeIfAbsent(key, i -> new ArrayList<>()).add(copyOf(value));
 //                if (value.totalCount() != jlbhOptions.iterations)
 //                    warning = " WARNING " + value.totalCount() + "!=" + jlbhOptions.iterations;
                 printStream.printf("%-48s", String.format("%s (%,d)", key, value.totalCount()));
                 printStream.println(value.toMicrosFormat());
             });
         }
+        if (jlbhOptions.recordAllocations) {
+            ImmutableAllocationResult allocation = new ImmutableAllocationResult(runAllocatedBytes.get(), jlbhOptions.iterations,
+                    gcCount() - gcCountAtStartOfRun, gcTimeMillis() - gcTimeAtStartOfRun);
+            allocationRuns.add(allocation);
+            printStream.printf("%-48s", "Allocation:");
+            printStream.printf("%,.1f bytes/iteration, GC: %,d collections taking %,d ms%n",
+                    allocation.allocatedBytesPerIteration(), allocation.gcCount(), allocation.gcTime().toMillis());
+        }
         if (jlbhOptions.recordOSJitter) {
-            printStream.printf("%-48s", String.format("OS Jitter (%,d)", osJitterHistogram.totalCount()));
-            printStream.println(osJitterHistogram.toMicrosFormat());
+            // the jitter thread may still be sampling, take a copy so the percentiles and histogram agree.
+            Histogram osJitter = copyOf(osJitterHistogram);
+            osJitterPercentileRuns.add(osJitter.getPercentiles());
+            osJitterHistogramRuns.add(osJitter);
+            printStream.printf("%-48s", String.format("OS Jitter (%,d)", osJitter.totalCount()));
+            printStream.println(osJitter.toMicrosFormat());
         }
         printStream.println("-------------------------------------------------------------------------------------------------------------------");
 
@@ -247,13 +390,16 @@ public class JLBH implements NanoSampler {
 
     private void consumeResults() {
         if (resultConsumer != null) {
-            final JLBHResult.ProbeResult endToEndProbeResult = new ImmutableProbeResult(percentileRuns);
+            final JLBHResult.ProbeResult endToEndProbeResult = new ImmutableProbeResult(percentileRuns, histogramRuns);
             final Map<String, ImmutableProbeResult> additionalProbeResults = additionalPercentileRuns.entrySet()
                     .stream()
                     .collect(Collectors.toMap(
                             Map.Entry::getKey,
-                            probe -> new ImmutableProbeResult(probe.getValue())));
-            resultConsumer.accept(new ImmutableJLBHResult(endToEndProbeResult, additionalProbeResults));
+                            probe -> new ImmutableProbeResult(probe.getValue(), additionalHistogramRuns.get(probe.getKey()))));
+            final JLBHResult.ProbeResult osJitterProbeResult = jlbhOptions.recordOSJitter
+                    ? new ImmutableProbeResult(osJitterPercentileRuns, osJitterHistogramRuns)
+                    : null;
+            resultConsumer.accept(new ImmutableJLBHResult(endToEndProbeResult, additionalProbeResults, osJitterProbeResult, allocationRuns));
         }
     }
 
@@ -285,7 +431,7 @@ public class JLBH implements NanoSampler {
                         minValue = v;
                 }
             }
-            consistencies.add(100 * (maxValue - minValue) / (maxValue + minValue / 2));
+            consistencies.add(variation(minValue, maxValue));
 
             maxValue = Double.MIN_VALUE;
             minValue = Double.MAX_VALUE;
@@ -324,6 +470,13 @@ public class JLBH implements NanoSampler {
         printStream.println("-------------------------------------------------------------------------------------------------------------------");
     }
 
+    /**
+     * @return the "% Variation" between runs reported in the summary, used as an estimate of the noise.
+     */
+    static double variation(double minValue, double maxValue) {
+        return 100 * (maxValue - minValue) / (maxValue + minValue / 2);
+    }
+
     private void addPrToPrint(@NotNull StringBuilder sb, String pr, int runs) {
         sb.append(pr);
         for (int i = 0; i < runs; i++) {
@@ -344,7 +497,7 @@ public class JLBH implements NanoSampler {
         sb.append("      % Variation");
     }
 
-    private String timeUnitToString(@NotNull TimeUnit timeUnit) {
+    static String timeUnitToString(@NotNull TimeUnit timeUnit) {
         switch (timeUnit) {
             case NANOSECONDS:
                 return "ns";
@@ -371,6 +524,10 @@ public class JLBH implements NanoSampler {
     }
 
     public void sample(long nanoTime) {
+        if (warmedUp && concurrentEndToEnd != null) {
+            concurrentEndToEnd.sample(nanoTime);
+            return;
+        }
         noResultsReturned++;
         if (noResultsReturned < jlbhOptions.warmUpIterations && !warmedUp) {
             endToEndHistogram.sample(nanoTime);
@@ -382,6 +539,7 @@ public class JLBH implements NanoSampler {
             if (additionHistograms.size() > 0) {
                 additionHistograms.values().forEach(Histogram::reset);
             }
+            concurrentHistograms.values().forEach(ConcurrentHistogram::reset);
             warmUpComplete.set(true);
             return;
         }
@@ -393,8 +551,16 @@ public class JLBH implements NanoSampler {
         return new Histogram(32, 10);
     }
 
+    @NotNull
+    private Histogram copyOf(@NotNull Histogram histogram) {
+        Histogram copy = createHistogram();
+        copy.add(histogram);
+        return copy;
+    }
+
     private class OSJitterMonitor extends Thread {
         final AtomicBoolean reset = new AtomicBoolean(false);
+        private volatile boolean terminated;
 
         @Override
         public void run() {
@@ -408,7 +574,7 @@ public class JLBH implements NanoSampler {
 
             try {
                 long lastTime = System.nanoTime(), start = lastTime;
-                while (true) {
+                while (!terminated) {
                     if (reset.compareAndSet(true, false)) {
                         osJitterHistogram.reset();
                         lastTime = System.nanoTime();
@@ -432,12 +598,18 @@ public class JLBH implements NanoSampler {
         void reset() {
             reset.set(true);
         }
+
+        // stop the thread so running more than one benchmark doesn't leave one spinning per benchmark.
+        void terminate() {
+            terminated = true;
+        }
     }
 
     private class JLBHEventHandler implements EventHandler {
         private int iteration;
         private long runStart;
         private long nextInvokeTime;
+        private long allocatedAtStart;
         private boolean waitingForEndOfRun = false;
 
         JLBHEventHandler() {
@@ -447,6 +619,8 @@ public class JLBH implements NanoSampler {
         private void resetTime() {
             runStart = System.currentTimeMillis();
             nextInvokeTime = System.nanoTime() + latencyBetweenTasks;
+            // includes any other handlers on the event loop.
+            allocatedAtStart = startOfRun();
         }
 
         @Override
@@ -459,13 +633,15 @@ public class JLBH implements NanoSampler {
             if (!waitingForEndOfRun) {
                 long now = System.nanoTime();
                 if (now >= nextInvokeTime) {
-                    nextInvokeTime += latencyBetweenTasks;
+                    nextInvokeTime += arrivalSchedules[0].nextIntervalNs(latencyBetweenTasks);
                     jlbhOptions.jlbhTask.run(nextInvokeTime);
                     busy = true;
                     ++iteration;
 
-                    if (i == jlbhOptions.iterations - 1)
+                    if (i == jlbhOptions.iterations - 1) {
+                        addAllocatedSince(allocatedAtStart);
                         waitingForEndOfRun = true;
+                    }
                 }
             } else {
                 if (endToEndHistogram.totalCount() >= jlbhOptions.iterations) {
@@ -20,6 +20,8 @@ package net.openhft.chronicle.core.jlbh;
 import net.openhft.affinity.Affinity;
 import net.openhft.affinity.AffinityLock;
 import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.threads.WaitStrategies;
+import net.openhft.chronicle.core.threads.WaitStrategy;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.concurrent.TimeUnit;
@@ -43,6 +45,12 @@ public class JLBHOptions {
     SKIP_FIRST_RUN skipFirstRun = SKIP_FIRST_RUN.NOT_SET;
     boolean jitterAffinity;
     Supplier<AffinityLock> acquireLock = Affinity::acquireLock;
+    int producerThreads = 1;
+    boolean recordAllocations;
+    @NotNull
+    Supplier<ArrivalSchedule> arrivalSchedule = ArrivalSchedules::evenlySpaced;
+    @NotNull
+    WaitStrategy waitStrategy = WaitStrategies.timedHybrid(2_000_000);
 
     /**
      * Number of iterations per second to be pushed through the benchmark
@@ -196,6 +204,65 @@ public class JLBHOptions {
         return this;
     }
 
+    /**
+     * Number of threads calling the task's run method, each acquires its own lock and starts the throughput divided
+     * by the number of threads, staggered so the start times are evenly spaced overall. With more than one,
+     * the task must be thread safe and the probes can be sampled from any thread.
+     *
+     * @param producerThreads default is 1
+     * @return Instance of the JLBHOptions to be used in the builder pattern.
+     */
+    @NotNull
+    public JLBHOptions producerThreads(int producerThreads) {
+        if (producerThreads < 1)
+            throw new IllegalArgumentException("producerThreads must be at least 1, was " + producerThreads);
+        this.producerThreads = producerThreads;
+        return this;
+    }
+
+    /**
+     * Record the bytes allocated by the thread(s) running the task, and the number of and time spent in
+     * garbage collections, during each run.
+     *
+     * @param recordAllocations default is false
+     * @return Instance of the JLBHOptions to be used in the builder pattern.
+     */
+    @NotNull
+    public JLBHOptions recordAllocations(boolean recordAllocations) {
+        this.recordAllocations = recordAllocations;
+        return this;
+    }
+
+    /**
+     * When each iteration is intended to start, e.g. <code>() -&gt; ArrivalSchedules.poisson(1)</code> for an open
+     * model of independent arrivals at the target throughput. When accounting for co-ordinated omission, the start time
+     * passed to the task is the intended start time, whichever the schedule.
+     * <p>
+     * The supplier is called once for each producer thread when the JLBH is created, and each thread keeps its
+     * schedule from run to run. Use a supplier which returns independent schedules, e.g.
+     * {@link ArrivalSchedules#poissonPerProducer(long)}, so producer threads don't arrive in lockstep.
+     *
+     * @param arrivalSchedule default is evenly spaced
+     * @return Instance of the JLBHOptions to be used in the builder pattern.
+     */
+    @NotNull
+    public JLBHOptions arrivalSchedule(@NotNull Supplier<ArrivalSchedule> arrivalSchedule) {
+        this.arrivalSchedule = arrivalSchedule;
+        return this;
+    }
+
+    /**
+     * How to wait for the start time of each iteration. The strategy is shared by the producer threads.
+     *
+     * @param waitStrategy default parks until 2 ms before the start time and spins for the rest
+     * @return Instance of the JLBHOptions to be used in the builder pattern.
+     */
+    @NotNull
+    public JLBHOptions waitStrategy(@NotNull WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+        return this;
+    }
+
     enum SKIP_FIRST_RUN {
         NOT_SET, SKIP, NO_SKIP
     }
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.jlbh;
+
+import net.openhft.chronicle.core.jlbh.JLBHResult.RunResult.Percentile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Duration;
+import java.util.*;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Compares the result of a JLBH with a baseline, e.g. one written by {@link JLBHResultExporter#toCSV(JLBHResult, Appendable)}
+ * by an earlier build, so a performance test can fail when the latency regresses.
+ * <p>
+ * The percentiles of the last run of the end to end series and each probe in both results are compared.
+ * A percentile fails if it is more than the baseline by more than the tolerance plus the "% Variation" between the runs,
+ * the larger of the baseline's and the result's, which is an estimate of the noise.
+ * A series or percentile in only one of them can't be compared and fails, e.g. if a probe was renamed or the result
+ * has too few iterations for a percentile in the baseline, as does a result with nothing to compare.
+ * <pre>
+ * JLBHRegressionGate gate = JLBHRegressionGate.fromCSV(new File("baseline.csv")).tolerance(PERCENTILE_99_9TH, 10);
+ * new JLBH(jlbhOptions, System.out, gate).start();
+ * assertTrue(gate.report(), gate.passed());
+ * </pre>
+ */
+public class JLBHRegressionGate implements JLBHResultConsumer {
+    @NotNull
+    private final JLBHResult baseline;
+    @NotNull
+    private final Map<Percentile, Double> tolerances = new EnumMap<>(Percentile.class);
+    @NotNull
+    private Set<Percentile> percentiles = EnumSet.complementOf(EnumSet.of(Percentile.WORST));
+    private double defaultTolerance = 5;
+    private double variationFactor = 1;
+    private volatile JLBHResult result;
+    @NotNull
+    private volatile List<Comparison> comparisons = Collections.emptyList();
+
+    /**
+     * @param baseline to compare with
+     */
+    public JLBHRegressionGate(@NotNull JLBHResult baseline) {
+        this.baseline = baseline;
+    }
+
+    /**
+     * @param file written by {@link JLBHResultExporter#toCSV(JLBHResult, Appendable)}
+     * @return a gate with the result in the file as its baseline
+     * @throws IOException if the file can't be read
+     */
+    @NotNull
+    public static JLBHRegressionGate fromCSV(@NotNull File file) throws IOException {
+        try (Reader reader = new FileReader(file)) {
+            return new JLBHRegressionGate(JLBHResultExporter.fromCSV(reader));
+        }
+    }
+
+    /**
+     * @param percentiles to compare, by default all but the worst
+     * @return this
+     */
+    @NotNull
+    public JLBHRegressionGate percentiles(@NotNull Percentile... percentiles) {
+        this.percentiles = EnumSet.noneOf(Percentile.class);
+        Collections.addAll(this.percentiles, percentiles);
+        return this;
+    }
+
+    /**
+     * @param percent increase allowed for any percentile in addition to the variation, default is 5
+     * @return this
+     */
+    @NotNull
+    public JLBHRegressionGate tolerance(double percent) {
+        this.defaultTolerance = percent;
+        return this;
+    }
+
+    /**
+     * @param percentile to set the tolerance for
+     * @param percent    increase allowed for this percentile in addition to the variation
+     * @return this
+     */
+    @NotNull
+    public JLBHRegressionGate tolerance(@NotNull Percentile percentile, double percent) {
+        tolerances.put(percentile, percent);
+        return this;
+    }
+
+    /**
+     * @param variationFactor the multiple of the "% Variation" between runs to allow, default is 1, 0 to ignore it.
+     * @return this
+     */
+    @NotNull
+    public JLBHRegressionGate variationFactor(double variationFactor) {
+        this.variationFactor = variationFactor;
+        return this;
+    }
+
+    @Override
+    public void accept(@NotNull JLBHResult result) {
+        List<Comparison> comparisons = new ArrayList<>();
+        compare(JLBHResultExporter.END_TO_END, baseline.endToEnd(), result.endToEnd(), comparisons);
+        Set<String> probeNames = new LinkedHashSet<>(baseline.probeNames());
+        probeNames.addAll(result.probeNames());
+        for (String probeName : probeNames) {
+            Optional<JLBHResult.ProbeResult> baselineProbe = baseline.probe(probeName);
+            Optional<JLBHResult.ProbeResult> probe = result.probe(probeName);
+            if (baselineProbe.isPresent() && probe.isPresent()) {
+                compare(probeName, baselineProbe.get(), probe.get(), comparisons);
+            } else {
+                // only in one of them, e.g. renamed.
+                Map<Percentile, Duration> onlyPercentiles = baselineProbe.orElseGet(probe::get).summaryOfLastRun().percentiles();
+                for (Percentile percentile : percentiles) {
+                    Duration duration = onlyPercentiles.get(percentile);
+                    if (duration != null)
+                        comparisons.add(baselineProbe.isPresent()
+                                ? notCompared(probeName, percentile, duration, null)
+                                : notCompared(probeName, percentile, null, duration));
+                }
+            }
+        }
+        this.comparisons = unmodifiableList(comparisons);
+        this.result = result;
+    }
+
+    private void compare(@NotNull String series, @NotNull JLBHResult.ProbeResult baselineProbe, @NotNull JLBHResult.ProbeResult probe, @NotNull List<Comparison> comparisons) {
+        Map<Percentile, Duration> baselinePercentiles = baselineProbe.summaryOfLastRun().percentiles();
+        Map<Percentile, Duration> actualPercentiles = probe.summaryOfLastRun().percentiles();
+        for (Percentile percentile : percentiles) {
+            Duration baselineDuration = baselinePercentiles.get(percentile);
+            Duration actualDuration = actualPercentiles.get(percentile);
+            if (baselineDuration == null && actualDuration == null)
+                continue;
+            if (baselineDuration == null || actualDuration == null) {
+                comparisons.add(notCompared(series, percentile, baselineDuration, actualDuration));
+                continue;
+            }
+            double variation = Math.max(variation(baselineProbe, percentile), variation(probe, percentile));
+            double allowedPercent = tolerances.getOrDefault(percentile, defaultTolerance) + variationFactor * variation;
+            long baselineNanos = baselineDuration.toNanos();
+            long allowedNanos = (long) (baselineNanos * (1 + allowedPercent / 100));
+            comparisons.add(new Comparison(series, percentile, baselineNanos, actualDuration.toNanos(), allowedNanos, variation));
+        }
+    }
+
+    @NotNull
+    private static Comparison notCompared(@NotNull String series, @NotNull Percentile percentile, @Nullable Duration baseline, @Nullable Duration actual) {
+        return new Comparison(series, percentile, baseline == null ? -1 : baseline.toNanos(), actual == null ? -1 : actual.toNanos(), -1, 0);
+    }
+
+    // as for the summary, the first run is skipped if there is more than one.
+    private static double variation(@NotNull JLBHResult.ProbeResult probe, @NotNull Percentile percentile) {
+        List<JLBHResult.RunResult> runs = probe.eachRunSummary();
+        double minValue = Double.MAX_VALUE, maxValue = 0;
+        for (int i = runs.size() > 1 ? 1 : 0; i < runs.size(); i++) {
+            Duration duration = runs.get(i).percentiles().get(percentile);
+            if (duration == null)
+                continue;
+            minValue = Math.min(minValue, duration.toNanos());
+            maxValue = Math.max(maxValue, duration.toNanos());
+        }
+        return maxValue == 0 ? 0 : JLBH.variation(minValue, maxValue);
+    }
+
+    /**
+     * @return the last result accepted
+     */
+    @Override
+    public JLBHResult get() {
+        return result;
+    }
+
+    /**
+     * @return each percentile compared for the last result accepted.
+     */
+    @NotNull
+    public List<Comparison> comparisons() {
+        return comparisons;
+    }
+
+    /**
+     * @return true if a result has been accepted, at least one percentile was compared, and every percentile was
+     * compared and didn't exceed what was allowed.
+     */
+    public boolean passed() {
+        return result != null && !comparisons.isEmpty() && comparisons.stream().allMatch(Comparison::passed);
+    }
+
+    /**
+     * @return a line for each percentile compared.
+     */
+    @NotNull
+    public String report() {
+        if (result == null)
+            return "No result";
+        StringBuilder sb = new StringBuilder(passed() ? "PASSED" : "FAILED");
+        if (comparisons.isEmpty())
+            sb.append(", nothing to compare");
+        for (Comparison comparison : comparisons)
+            sb.append('\n').append(comparison);
+        return sb.toString();
+    }
+
+    public static final class Comparison {
+        @NotNull
+        private final String series;
+        @NotNull
+        private final Percentile percentile;
+        private final long baselineNanos;
+        private final long actualNanos;
+        private final long allowedNanos;
+        private final double variation;
+
+        Comparison(@NotNull String series, @NotNull Percentile percentile, long baselineNanos, long actualNanos, long allowedNanos, double variation) {
+            this.series = series;
+            this.percentile = percentile;
+            this.baselineNanos = baselineNanos;
+            this.actualNanos = actualNanos;
+            this.allowedNanos = allowedNanos;
+            this.variation = variation;
+        }
+
+        @NotNull
+        public String series() {
+            return series;
+        }
+
+        @NotNull
+        public Percentile percentile() {
+            return percentile;
+        }
+
+        /**
+         * @return the baseline percentile, or -1 if the baseline doesn't have it
+         */
+        public long baselineNanos() {
+            return baselineNanos;
+        }
+
+        /**
+         * @return the result's percentile, or -1 if the result doesn't have it
+         */
+        public long actualNanos() {
+            return actualNanos;
+        }
+
+        /**
+         * @return the most the result's percentile can be, or -1 if not compared
+         */
+        public long allowedNanos() {
+            return allowedNanos;
+        }
+
+        /**
+         * @return whether both the baseline and the result have the percentile
+         */
+        public boolean compared() {
+            return baselineNanos >= 0 && actualNanos >= 0;
+        }
+
+        /**
+         * @return the larger of the "% Variation" of the baseline and the result
+         */
+        public double variation() {
+            return variation;
+        }
+
+        public boolean passed() {
+            return compared() && actualNanos <= allowedNanos;
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            if (!compared())
+                return String.format("%-6s %s %s: not compared, baseline %s, actual %s",
+                        "FAILED", series, JLBHResultExporter.label(percentile), micros(baselineNanos), micros(actualNanos));
+            return String.format("%-6s %s %s: baseline %,.2f us, actual %,.2f us, allowed %,.2f us, variation %.2f%%",
+                    passed() ? "ok" : "FAILED", series, JLBHResultExporter.label(percentile),
+                    baselineNanos / 1e3, actualNanos / 1e3, allowedNanos / 1e3, variation);
+        }
+
+        @NotNull
+        private static String micros(long nanos) {
+            return nanos < 0 ? "missing" : String.format("%,.2f us", nanos / 1e3);
+        }
+    }
+}
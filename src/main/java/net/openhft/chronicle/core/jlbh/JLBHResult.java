@@ -1,11 +1,14 @@
 package net.openhft.chronicle.core.jlbh;
 
 import net.openhft.chronicle.core.annotation.NotNull;
+import net.openhft.chronicle.core.util.Histogram;
 
 import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface JLBHResult {
 
@@ -15,6 +18,30 @@ public interface JLBHResult {
     @NotNull
     Optional<ProbeResult> probe(String probeName);
 
+    /**
+     * @return the names of the additional probes, in order.
+     */
+    @NotNull
+    default Set<String> probeNames() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * @return the OS jitter recorded during each run, if it was recorded.
+     */
+    @NotNull
+    default Optional<ProbeResult> osJitter() {
+        return Optional.empty();
+    }
+
+    /**
+     * @return the allocation and garbage collection during each run, or an empty list if these weren't recorded.
+     */
+    @NotNull
+    default List<AllocationResult> eachRunAllocation() {
+        return Collections.emptyList();
+    }
+
     interface ProbeResult {
 
         @NotNull
@@ -22,6 +49,37 @@ public interface JLBHResult {
 
         @NotNull
         List<RunResult> eachRunSummary();
+
+        /**
+         * The histograms are shared so they must not be modified.
+         *
+         * @return all the samples of each run, or an empty list if these weren't retained.
+         */
+        @NotNull
+        default List<Histogram> eachRunHistogram() {
+            return Collections.emptyList();
+        }
+    }
+
+    interface AllocationResult {
+
+        /**
+         * @return the bytes allocated by the thread(s) running the task.
+         */
+        long allocatedBytes();
+
+        double allocatedBytesPerIteration();
+
+        /**
+         * @return the number of garbage collections by any thread.
+         */
+        long gcCount();
+
+        /**
+         * @return the time spent in garbage collection, for concurrent collectors this is not all pause time.
+         */
+        @NotNull
+        Duration gcTime();
     }
 
     interface RunResult {
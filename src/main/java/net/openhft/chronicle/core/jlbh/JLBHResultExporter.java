@@ -0,0 +1,290 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.jlbh;
+
+import net.openhft.chronicle.core.jlbh.JLBHResult.RunResult.Percentile;
+import net.openhft.chronicle.core.util.Histogram;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Writes a JLBHResult in machine readable formats, e.g. for CI to track regressions.
+ * <p>
+ * The series are "end to end", each probe by name and "OS jitter" if it was recorded. Latencies are in nanoseconds
+ * except in the percentile distribution which is in microseconds.
+ */
+public enum JLBHResultExporter {
+    ;
+    static final String END_TO_END = "end to end";
+    static final String OS_JITTER = "OS jitter";
+    static final String CSV_HEADER = "series,run,count,50,90,99,99.7,99.9,99.97,99.99,99.999,worst";
+
+    /**
+     * @param percentile to label
+     * @return the label used in the CSV header and JSON
+     */
+    @NotNull
+    static String label(@NotNull Percentile percentile) {
+        switch (percentile) {
+            case PERCENTILE_50TH:
+                return "50";
+            case PERCENTILE_90TH:
+                return "90";
+            case PERCENTILE_99TH:
+                return "99";
+            case PERCENTILE_99_7TH:
+                return "99.7";
+            case PERCENTILE_99_9TH:
+                return "99.9";
+            case PERCENTILE_99_97TH:
+                return "99.97";
+            case PERCENTILE_99_99TH:
+                return "99.99";
+            case PERCENTILE_99_999TH:
+                return "99.999";
+            case WORST:
+                return "worst";
+            default:
+                throw new IllegalArgumentException("Unrecognized percentile " + percentile);
+        }
+    }
+
+    /**
+     * Write a header and one line per run of each series with the count and each percentile in nanoseconds.
+     * A percentile which wasn't measured is left blank.
+     *
+     * @param result to write
+     * @param out    to append to
+     * @throws IOException if the Appendable throws it
+     */
+    public static void toCSV(@NotNull JLBHResult result, @NotNull Appendable out) throws IOException {
+        out.append(CSV_HEADER).append('\n');
+        csvSeries(END_TO_END, result.endToEnd(), out);
+        for (String probeName : result.probeNames())
+            csvSeries(probeName, result.probe(probeName).get(), out);
+        if (result.osJitter().isPresent())
+            csvSeries(OS_JITTER, result.osJitter().get(), out);
+    }
+
+    private static void csvSeries(@NotNull String series, @NotNull JLBHResult.ProbeResult probeResult, @NotNull Appendable out) throws IOException {
+        List<JLBHResult.RunResult> runs = probeResult.eachRunSummary();
+        List<Histogram> histograms = probeResult.eachRunHistogram();
+        for (int i = 0; i < runs.size(); i++) {
+            out.append(csvField(series)).append(',').append(Integer.toString(i + 1)).append(',');
+            if (i < histograms.size())
+                out.append(Long.toString(histograms.get(i).totalCount()));
+            Map<Percentile, Duration> percentiles = runs.get(i).percentiles();
+            for (Percentile percentile : Percentile.values()) {
+                out.append(',');
+                Duration duration = percentiles.get(percentile);
+                if (duration != null)
+                    out.append(Long.toString(duration.toNanos()));
+            }
+            out.append('\n');
+        }
+    }
+
+    @NotNull
+    private static String csvField(@NotNull String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0)
+            return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Read a result written by {@link #toCSV(JLBHResult, Appendable)}, e.g. as a baseline to compare with.
+     * The result has the percentiles of each run but not the histograms.
+     *
+     * @param reader to read from
+     * @return the result
+     * @throws IOException              if the Reader throws it
+     * @throws IllegalArgumentException if the content is not in the format written
+     */
+    @NotNull
+    public static JLBHResult fromCSV(@NotNull Reader reader) throws IOException, IllegalArgumentException {
+        BufferedReader br = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String header = br.readLine();
+        if (!CSV_HEADER.equals(header))
+            throw new IllegalArgumentException("Expected a header of " + CSV_HEADER + " but was " + header);
+        Map<String, List<double[]>> seriesRuns = new LinkedHashMap<>();
+        for (String line; (line = br.readLine()) != null; ) {
+            if (line.isEmpty())
+                continue;
+            List<String> fields = csvFields(line);
+            if (fields.size() != 3 + Percentile.values().length)
+                throw new IllegalArgumentException("Expected " + (3 + Percentile.values().length) + " fields in " + line);
+            // in the order of Histogram.percentilesFor, as ImmutableRunResult expects.
+            double[] percentiles = fields.subList(3, fields.size()).stream()
+                    .filter(f -> !f.isEmpty())
+                    .mapToDouble(Double::parseDouble)
+                    .toArray();
+            seriesRuns.computeIfAbsent(fields.get(0), k -> new ArrayList<>()).add(percentiles);
+        }
+        List<double[]> endToEnd = seriesRuns.remove(END_TO_END);
+        if (endToEnd == null)
+            throw new IllegalArgumentException("No " + END_TO_END + " series");
+        List<double[]> osJitter = seriesRuns.remove(OS_JITTER);
+        Map<String, JLBHResult.ProbeResult> probes = new TreeMap<>();
+        seriesRuns.forEach((series, runs) -> probes.put(series, new ImmutableProbeResult(runs)));
+        return new ImmutableJLBHResult(new ImmutableProbeResult(endToEnd), probes,
+                osJitter == null ? null : new ImmutableProbeResult(osJitter), new ArrayList<>());
+    }
+
+    @NotNull
+    private static List<String> csvFields(@NotNull String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch != '"')
+                    sb.append(ch);
+                else if (i + 1 < line.length() && line.charAt(i + 1) == '"')
+                    sb.append(line.charAt(++i));
+                else
+                    quoted = false;
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(ch);
+            }
+        }
+        fields.add(sb.toString());
+        return fields;
+    }
+
+    /**
+     * Write a JSON object with a field per series, each an array of runs with the count, the percentiles in
+     * nanoseconds and the non empty buckets of the histogram as [nanoseconds, count] pairs.
+     *
+     * @param result to write
+     * @param out    to append to
+     * @throws IOException if the Appendable throws it
+     */
+    public static void toJSON(@NotNull JLBHResult result, @NotNull Appendable out) throws IOException {
+        out.append("{\n  \"endToEnd\": ");
+        jsonSeries(result.endToEnd(), "  ", out);
+        out.append(",\n  \"probes\": {");
+        String sep = "\n";
+        for (String probeName : result.probeNames()) {
+            out.append(sep).append("    ").append(jsonString(probeName)).append(": ");
+            jsonSeries(result.probe(probeName).get(), "    ", out);
+            sep = ",\n";
+        }
+        out.append(result.probeNames().isEmpty() ? "}" : "\n  }");
+        if (result.osJitter().isPresent()) {
+            out.append(",\n  \"osJitter\": ");
+            jsonSeries(result.osJitter().get(), "  ", out);
+        }
+        out.append("\n}\n");
+    }
+
+    private static void jsonSeries(@NotNull JLBHResult.ProbeResult probeResult, @NotNull String indent, @NotNull Appendable out) throws IOException {
+        List<JLBHResult.RunResult> runs = probeResult.eachRunSummary();
+        List<Histogram> histograms = probeResult.eachRunHistogram();
+        out.append('[');
+        for (int i = 0; i < runs.size(); i++) {
+            out.append(i == 0 ? "\n" : ",\n").append(indent).append("  {\"run\": ").append(Integer.toString(i + 1));
+            Histogram histogram = i < histograms.size() ? histograms.get(i) : null;
+            if (histogram != null)
+                out.append(", \"count\": ").append(Long.toString(histogram.totalCount()));
+            out.append(", \"percentiles\": {");
+            String sep = "";
+            for (Map.Entry<Percentile, Duration> entry : runs.get(i).percentiles().entrySet()) {
+                out.append(sep).append('"').append(label(entry.getKey())).append("\": ").append(Long.toString(entry.getValue().toNanos()));
+                sep = ", ";
+            }
+            out.append('}');
+            if (histogram != null) {
+                out.append(", \"histogram\": [");
+                int[] sampleCount = histogram.sampleCount();
+                sep = "";
+                for (int b = 0; b < histogram.powersOf2() << histogram.fractionBits(); b++) {
+                    if (sampleCount[b] == 0)
+                        continue;
+                    out.append(sep).append('[').append(Long.toString((long) histogram.bucketValue(b)))
+                            .append(", ").append(Integer.toString(sampleCount[b])).append(']');
+                    sep = ", ";
+                }
+                out.append(']');
+            }
+            out.append('}');
+        }
+        out.append(runs.isEmpty() ? "]" : "\n" + indent + "]");
+    }
+
+    @NotNull
+    private static String jsonString(@NotNull String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"' || ch == '\\')
+                sb.append('\\').append(ch);
+            else if (ch < ' ')
+                sb.append(String.format("\\u%04x", (int) ch));
+            else
+                sb.append(ch);
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Write a histogram of nanoseconds in the percentile distribution format of HdrHistogram's
+     * outputPercentileDistribution with values in microseconds, as read by its plotting tools.
+     * There is a line for each non empty bucket, using the middle of the bucket as its value.
+     *
+     * @param histogram to write, e.g. from {@link JLBHResult.ProbeResult#eachRunHistogram()}
+     * @param out       to append to
+     * @throws IOException if the Appendable throws it
+     */
+    public static void toPercentileDistribution(@NotNull Histogram histogram, @NotNull Appendable out) throws IOException {
+        out.append(String.format(Locale.US, "%12s %14s %10s %14s\n\n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)"));
+        long totalCount = histogram.totalCount();
+        int[] sampleCount = histogram.sampleCount();
+        int buckets = histogram.powersOf2() << histogram.fractionBits();
+        long count = 0;
+        double sum = 0, sumSq = 0, max = 0;
+        for (int b = 0; b < buckets; b++) {
+            if (sampleCount[b] == 0)
+                continue;
+            double value = histogram.bucketValue(b) / 1e3;
+            count += sampleCount[b];
+            sum += value * sampleCount[b];
+            sumSq += value * value * sampleCount[b];
+            max = value;
+            double percentile = (double) count / totalCount;
+            if (count == totalCount)
+                out.append(String.format(Locale.US, "%12.3f %2.12f %10d\n", value, percentile, count));
+            else
+                out.append(String.format(Locale.US, "%12.3f %2.12f %10d %14.2f\n", value, percentile, count, 1 / (1 - percentile)));
+        }
+        double mean = count == 0 ? 0 : sum / count;
+        double stdDev = count == 0 ? 0 : Math.sqrt(Math.max(0, sumSq / count - mean * mean));
+        out.append(String.format(Locale.US, "#[Mean    = %12.3f, StdDeviation   = %12.3f]\n", mean, stdDev));
+        out.append(String.format(Locale.US, "#[Max     = %12.3f, Total count    = %12d]\n", max, totalCount));
+        out.append(String.format(Locale.US, "#[Buckets = %12d, SubBuckets     = %12d]\n", histogram.powersOf2(), 1 << histogram.fractionBits()));
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.jlbh;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Runs a JLBH benchmark at each of a series of throughputs, including the warm up, to find the throughput at which
+ * the end to end p99 or p99.9 latency of the last run exceeds a threshold, i.e. the knee of the latency curve.
+ * <p>
+ * All the other options are taken from the JLBHOptions passed, and the task is initialised for each throughput.
+ */
+public class JLBHSweep {
+    @NotNull
+    private final JLBHOptions jlbhOptions;
+    @NotNull
+    private final PrintStream printStream;
+    private final Consumer<JLBHSweepResult> resultConsumer;
+    @NotNull
+    private int[] throughputs = {};
+    private long p99ThresholdNs = Long.MAX_VALUE;
+    private long p999ThresholdNs = Long.MAX_VALUE;
+    private boolean stopAtSaturation = true;
+
+    /**
+     * @param jlbhOptions Options to run the benchmark with at each throughput
+     */
+    public JLBHSweep(@NotNull JLBHOptions jlbhOptions) {
+        this(jlbhOptions, System.out, null);
+    }
+
+    /**
+     * @param jlbhOptions    Options to run the benchmark with at each throughput
+     * @param printStream    Used to print the output of each run and the sweep summary
+     * @param resultConsumer If provided, accepts the result of each throughput once the sweep is complete
+     */
+    public JLBHSweep(@NotNull JLBHOptions jlbhOptions, @NotNull PrintStream printStream, Consumer<JLBHSweepResult> resultConsumer) {
+        if (jlbhOptions.jlbhTask == null) throw new IllegalStateException("jlbhTask must be set");
+        this.jlbhOptions = jlbhOptions;
+        this.printStream = printStream;
+        this.resultConsumer = resultConsumer;
+    }
+
+    /**
+     * The throughputs to run, in the time unit of the JLBHOptions.
+     *
+     * @param throughputs in the order to run them
+     * @return this
+     */
+    @NotNull
+    public JLBHSweep throughputs(@NotNull int... throughputs) {
+        for (int throughput : throughputs)
+            if (throughput < 1)
+                throw new IllegalArgumentException("throughput must be positive, was " + throughput);
+        this.throughputs = throughputs.clone();
+        return this;
+    }
+
+    /**
+     * Run the throughputs from, from + step, ... up to and including to.
+     *
+     * @param from the first throughput
+     * @param to   the last throughput
+     * @param step the increase between throughputs
+     * @return this
+     * @throws IllegalArgumentException if from or step is not positive, or to is less than from
+     */
+    @NotNull
+    public JLBHSweep ramp(int from, int to, int step) {
+        if (from < 1)
+            throw new IllegalArgumentException("from must be positive, was " + from);
+        if (to < from)
+            throw new IllegalArgumentException("to must be at least from " + from + ", was " + to);
+        if (step < 1)
+            throw new IllegalArgumentException("step must be positive, was " + step);
+        return throughputs(IntStream.iterate(from, t -> t + step).limit((to - from) / step + 1L).toArray());
+    }
+
+    /**
+     * @param threshold for the end to end 99th percentile, by default there is none
+     * @param timeUnit  of the threshold
+     * @return this
+     */
+    @NotNull
+    public JLBHSweep p99Threshold(long threshold, @NotNull TimeUnit timeUnit) {
+        this.p99ThresholdNs = timeUnit.toNanos(threshold);
+        return this;
+    }
+
+    /**
+     * The 99.9th percentile is only measured if there are more than 100,000 iterations per run.
+     *
+     * @param threshold for the end to end 99.9th percentile, by default there is none
+     * @param timeUnit  of the threshold
+     * @return this
+     */
+    @NotNull
+    public JLBHSweep p999Threshold(long threshold, @NotNull TimeUnit timeUnit) {
+        this.p999ThresholdNs = timeUnit.toNanos(threshold);
+        return this;
+    }
+
+    /**
+     * @param stopAtSaturation whether to skip the throughputs after the first to exceed a threshold, default is true
+     * @return this
+     */
+    @NotNull
+    public JLBHSweep stopAtSaturation(boolean stopAtSaturation) {
+        this.stopAtSaturation = stopAtSaturation;
+        return this;
+    }
+
+    /**
+     * Start the sweep, this runs the benchmark once for each throughput.
+     */
+    public void start() {
+        if (throughputs.length == 0) throw new IllegalStateException("throughputs must be set");
+        Map<Integer, JLBHResult> results = new LinkedHashMap<>();
+        OptionalInt saturationThroughput = OptionalInt.empty();
+        int throughput0 = jlbhOptions.throughput;
+        try {
+            for (int throughput : throughputs) {
+                jlbhOptions.throughput = throughput;
+                JLBHResultConsumer consumer = JLBHResultConsumer.newThreadSafeInstance();
+                new JLBH(jlbhOptions, printStream, consumer).start();
+                results.put(throughput, consumer.get());
+                if (!saturationThroughput.isPresent() && saturated(consumer.get().endToEnd().summaryOfLastRun())) {
+                    saturationThroughput = OptionalInt.of(throughput);
+                    if (stopAtSaturation)
+                        break;
+                }
+            }
+        } finally {
+            jlbhOptions.throughput = throughput0;
+        }
+
+        printSweepSummary(results, saturationThroughput);
+        if (resultConsumer != null)
+            resultConsumer.accept(new ImmutableJLBHSweepResult(results, saturationThroughput));
+    }
+
+    private boolean saturated(@NotNull JLBHResult.RunResult runResult) {
+        Duration p999 = runResult.get999thPercentile();
+        return runResult.get99thPercentile().toNanos() > p99ThresholdNs
+                || (p999 != null && p999.toNanos() > p999ThresholdNs);
+    }
+
+    private void printSweepSummary(@NotNull Map<Integer, JLBHResult> results, @NotNull OptionalInt saturationThroughput) {
+        String timeUnit = JLBH.timeUnitToString(jlbhOptions.throughputTimeUnit);
+        printStream.println("-------------------------------- SWEEP SUMMARY (end to end)------------------------------------------------------");
+        printStream.printf("%-16s%12s%12s%12s%12s%12s%n", "Throughput", "50", "90", "99", "99.9", "worst");
+        results.forEach((throughput, result) -> {
+            JLBHResult.RunResult runResult = result.endToEnd().summaryOfLastRun();
+            Duration p999 = runResult.get999thPercentile();
+            printStream.printf("%-16s%12.2f%12.2f%12.2f%12s%12.2f%n",
+                    throughput + "/" + timeUnit,
+                    micros(runResult.get50thPercentile()),
+                    micros(runResult.get90thPercentile()),
+                    micros(runResult.get99thPercentile()),
+                    p999 == null ? "-" : String.format("%.2f", micros(p999)),
+                    micros(runResult.getWorst()));
+        });
+        if (saturationThroughput.isPresent())
+            printStream.println("Saturated at " + saturationThroughput.getAsInt() + "/" + timeUnit + thresholds());
+        else
+            printStream.println("Not saturated" + thresholds());
+        printStream.println("-------------------------------------------------------------------------------------------------------------------");
+    }
+
+    @NotNull
+    private String thresholds() {
+        StringBuilder sb = new StringBuilder();
+        if (p99ThresholdNs != Long.MAX_VALUE)
+            sb.append(" 99: ").append(p99ThresholdNs / 1e3).append("us");
+        if (p999ThresholdNs != Long.MAX_VALUE)
+            sb.append(" 99.9: ").append(p999ThresholdNs / 1e3).append("us");
+        return sb.length() == 0 ? "" : ", threshold" + sb;
+    }
+
+    private static double micros(@NotNull Duration duration) {
+        return duration.toNanos() / 1e3;
+    }
+}
@@ -0,0 +1,21 @@
+package net.openhft.chronicle.core.jlbh;
+
+import net.openhft.chronicle.core.annotation.NotNull;
+
+import java.util.Map;
+import java.util.OptionalInt;
+
+public interface JLBHSweepResult {
+
+    /**
+     * @return the result of each throughput run, in the order they were run.
+     */
+    @NotNull
+    Map<Integer, JLBHResult> results();
+
+    /**
+     * @return the first throughput at which the end to end latency exceeded a threshold, if any did.
+     */
+    @NotNull
+    OptionalInt saturationThroughput();
+}
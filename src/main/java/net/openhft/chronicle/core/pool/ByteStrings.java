@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.pool;
+
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.util.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+import static sun.misc.Unsafe.ARRAY_BYTE_BASE_OFFSET;
+
+/*
+ * Hashes and compares ISO-8859-1 or UTF-8 bytes, in a byte[] or off heap, as the String they decode to.
+ * The base is the byte[] or null for an address, and the offset is from ARRAY_BYTE_BASE_OFFSET or the address.
+ */
+enum ByteStrings {
+    ;
+    static final long MALFORMED = -1;
+
+    static long arrayOffset(@NotNull byte[] bytes, int offset, int length) throws IndexOutOfBoundsException {
+        if (offset < 0 || length < 0 || offset > bytes.length - length)
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", bytes.length: " + bytes.length);
+        return ARRAY_BYTE_BASE_OFFSET + offset;
+    }
+
+    /**
+     * @return the same hash as Maths.hash32(CharSequence) of the decoded String as an unsigned int,
+     * or MALFORMED if the bytes are not valid UTF-8.
+     */
+    static long hash32(@Nullable Object base, long offset, int length, boolean utf8) {
+        long hash = 0;
+        if (utf8) {
+            for (long i = offset, end = offset + length; i < end; ) {
+                int cp = UNSAFE.getByte(base, i);
+                if (cp >= 0) {
+                    i++;
+                } else {
+                    long next = i + utf8Length(cp);
+                    if ((cp = codePoint(base, i, next, end)) < 0)
+                        return MALFORMED;
+                    i = next;
+                    if (cp >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                        hash = hash * 841248317 + Character.highSurrogate(cp);
+                        cp = Character.lowSurrogate(cp);
+                    }
+                }
+                hash = hash * 841248317 + cp;
+            }
+        } else {
+            for (long i = offset, end = offset + length; i < end; i++)
+                hash = hash * 841248317 + (UNSAFE.getByte(base, i) & 0xFF);
+        }
+        long h = Maths.agitate(hash);
+        h ^= h >> 32;
+        return (int) h & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @return whether s is the String the bytes decode to, the bytes must be valid.
+     */
+    static boolean isEqual(@Nullable String s, @Nullable Object base, long offset, int length, boolean utf8) {
+        if (s == null)
+            return false;
+        if (!utf8) {
+            if (s.length() != length)
+                return false;
+            for (int i = 0; i < length; i++)
+                if (s.charAt(i) != (UNSAFE.getByte(base, offset + i) & 0xFF))
+                    return false;
+            return true;
+        }
+        // a UTF-8 String has no more chars than bytes.
+        if (s.length() > length)
+            return false;
+        int j = 0;
+        for (long i = offset, end = offset + length; i < end; ) {
+            if (j == s.length())
+                return false;
+            int cp = UNSAFE.getByte(base, i);
+            if (cp >= 0) {
+                i++;
+            } else {
+                long next = i + utf8Length(cp);
+                cp = codePoint(base, i, next, end);
+                i = next;
+                if (cp >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                    if (s.charAt(j++) != Character.highSurrogate(cp) || j == s.length())
+                        return false;
+                    cp = Character.lowSurrogate(cp);
+                }
+            }
+            if (s.charAt(j++) != cp)
+                return false;
+        }
+        return j == s.length();
+    }
+
+    /**
+     * @return the String the bytes decode to, malformed UTF-8 is decoded as String(byte[], UTF_8) does.
+     */
+    @NotNull
+    static String toString(@Nullable Object base, long offset, int length, boolean utf8) {
+        char[] chars = new char[length];
+        int j = 0;
+        for (long i = offset, end = offset + length; i < end; ) {
+            int cp = UNSAFE.getByte(base, i);
+            if (!utf8) {
+                cp &= 0xFF;
+                i++;
+            } else if (cp >= 0) {
+                i++;
+            } else {
+                long next = i + utf8Length(cp);
+                if ((cp = codePoint(base, i, next, end)) < 0)
+                    return malformed(base, offset, length);
+                i = next;
+                if (cp >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                    chars[j++] = Character.highSurrogate(cp);
+                    cp = Character.lowSurrogate(cp);
+                }
+            }
+            chars[j++] = (char) cp;
+        }
+        return StringUtils.newString(j == length ? chars : Arrays.copyOf(chars, j));
+    }
+
+    @NotNull
+    static String malformed(@Nullable Object base, long offset, int length) {
+        byte[] bytes = new byte[length];
+        UNSAFE.copyMemory(base, offset, bytes, ARRAY_BYTE_BASE_OFFSET, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // the length of the sequence starting with a negative byte, 0 if it can't start one.
+    private static int utf8Length(int b0) {
+        if (b0 >= (byte) 0xC2 && b0 <= (byte) 0xDF)
+            return 2;
+        if (b0 >= (byte) 0xE0 && b0 <= (byte) 0xEF)
+            return 3;
+        if (b0 >= (byte) 0xF0 && b0 <= (byte) 0xF4)
+            return 4;
+        return 0;
+    }
+
+    // the code point of the sequence from i to next, or -1 if it is not the shortest valid encoding.
+    private static int codePoint(@Nullable Object base, long i, long next, long end) {
+        if (next == i || next > end)
+            return -1;
+        int b0 = UNSAFE.getByte(base, i);
+        int cp = b0 & (0x7F >> (next - i));
+        for (long k = i + 1; k < next; k++) {
+            int b = UNSAFE.getByte(base, k);
+            if ((b & 0xC0) != 0x80)
+                return -1;
+            cp = (cp << 6) | (b & 0x3F);
+        }
+        switch ((int) (next - i)) {
+            case 3:
+                return cp < 0x800 || (cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE) ? -1 : cp;
+            case 4:
+                return cp < Character.MIN_SUPPLEMENTARY_CODE_POINT || cp > Character.MAX_CODE_POINT ? -1 : cp;
+            default:
+                return cp;
+        }
+    }
+}
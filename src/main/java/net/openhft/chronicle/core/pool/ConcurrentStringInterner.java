@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.pool;
+
+import net.openhft.chronicle.core.Maths;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
+/**
+ * A StringInterner which can be shared by any number of threads, using the same two choice hashing.
+ * <p>
+ * Lookups are plain reads of the array without locks, and a miss publishes the new String with an ordered write.
+ * Threads interning the same text concurrently can each get their own copy, and one of them is retained.
+ */
+public class ConcurrentStringInterner extends StringInterner {
+    private static final long ARRAY_BASE = UNSAFE.arrayBaseOffset(String[].class);
+    private static final int ARRAY_SHIFT = Maths.intLog2(UNSAFE.arrayIndexScale(String[].class));
+
+    public ConcurrentStringInterner(int capacity) throws IllegalArgumentException {
+        super(capacity);
+    }
+
+    @Override
+    protected void store(int index, @NotNull String s) {
+        UNSAFE.putOrderedObject(interner, ARRAY_BASE + ((long) index << ARRAY_SHIFT), s);
+    }
+
+    // a shared toggle would be written by every thread on a miss.
+    @Override
+    protected boolean toggle() {
+        return ThreadLocalRandom.current().nextBoolean();
+    }
+}
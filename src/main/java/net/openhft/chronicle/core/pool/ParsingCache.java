@@ -29,11 +29,27 @@ import java.util.stream.Stream;
  * Created by Peter Lawrey on 29/02/16.
  */
 public class ParsingCache<E> {
+    // an estimate of the String, its array and the ParsedData, not including the parsed value.
+    static final int ENTRY_OVERHEAD = 64;
+
     @NotNull
-    protected final ParsedData<E>[] interner;
-    protected final int mask, shift;
+    protected ParsedData<E>[] interner;
+    protected int mask, shift;
     private final Function<String, E> eFunction;
     protected boolean toggle = false;
+    @NotNull
+    private EvictionPolicy evictionPolicy = EvictionPolicy.TOGGLE;
+    private int maxEntries = Integer.MAX_VALUE;
+    private long maxBytes = Long.MAX_VALUE;
+    private double growMissRate = Double.NaN;
+    private int maxCapacity;
+    private int size;
+    private long estimatedBytes;
+    // the next slot to consider evicting to keep within maxEntries or maxBytes.
+    private int hand;
+    private long hits, misses, evictions;
+    // the counters at the start of the current window for deciding whether to grow.
+    private long windowLookups, windowMisses, windowEvictions;
 
     public ParsingCache(int capacity, Function<String, E> eFunction) throws IllegalArgumentException {
         this.eFunction = eFunction;
@@ -41,6 +57,65 @@ public class ParsingCache<E> {
         shift = Maths.intLog2(n);
         interner = new ParsedData[n];
         mask = n - 1;
+        maxCapacity = n;
+    }
+
+    /**
+     * @param evictionPolicy which of the two entries a value could go in to replace, default is TOGGLE
+     * @return this
+     */
+    @NotNull
+    public ParsingCache<E> evictionPolicy(@NotNull EvictionPolicy evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+        return this;
+    }
+
+    /**
+     * When the cache has this many entries, a new value replaces one of the entries in its two slots, or if both are
+     * empty an entry found by moving a hand over the table, so a new working set still gets cached.
+     *
+     * @param maxEntries the most entries to keep, by default limited only by the capacity
+     * @return this
+     */
+    @NotNull
+    public ParsingCache<E> maxEntries(int maxEntries) {
+        if (maxEntries < 1)
+            throw new IllegalArgumentException("maxEntries must be at least 1, was " + maxEntries);
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    /**
+     * When the entries would exceed this estimated size, entries are evicted as for {@link #maxEntries(int)} until the
+     * new value fits, and a value larger than this on its own isn't cached. An entry is estimated as
+     * {@value #ENTRY_OVERHEAD} bytes plus two bytes per char, not including the parsed value.
+     *
+     * @param maxBytes the estimated bytes to keep, by default limited only by the capacity
+     * @return this
+     */
+    @NotNull
+    public ParsingCache<E> maxBytes(long maxBytes) {
+        if (maxBytes < 1)
+            throw new IllegalArgumentException("maxBytes must be positive, was " + maxBytes);
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Double the capacity when, over a window of as many lookups as the capacity, values are being evicted and the
+     * proportion of lookups which miss is more than the missRate. By default the capacity is fixed.
+     *
+     * @param missRate    between 0 and 1
+     * @param maxCapacity to grow to
+     * @return this
+     */
+    @NotNull
+    public ParsingCache<E> growWhenMissRateAbove(double missRate, int maxCapacity) {
+        if (!(missRate >= 0 && missRate < 1))
+            throw new IllegalArgumentException("missRate must be from 0 to 1, was " + missRate);
+        this.growMissRate = missRate;
+        this.maxCapacity = Math.max(interner.length, Maths.nextPower2(maxCapacity, 128));
+        return this;
     }
 
     @Nullable
@@ -51,18 +126,221 @@ public class ParsingCache<E> {
         int h = hash & mask;
         ParsedData<E> s = interner[h];
         if (s != null && StringUtils.isEqual(s.string, cs))
-            return s.e;
+            return hit(s);
         int h2 = (hash >> shift) & mask;
         ParsedData<E> s2 = interner[h2];
         if (s2 != null && StringUtils.isEqual(s2.string, cs))
-            return s2.e;
-        @NotNull String string = cs.toString();
-        @NotNull ParsedData<E> s3 = new ParsedData<>(string, eFunction.apply(string));
-        interner[s == null || (s2 != null && toggle()) ? h : h2] = s3;
+            return hit(s2);
+        return miss(hash, cs.toString());
+    }
+
+    /**
+     * Parse ISO-8859-1 bytes, only creating a String if it is not already cached.
+     *
+     * @param bytes  to decode
+     * @param offset of the first byte
+     * @param length in bytes
+     * @return the parsed value
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    public E intern(@NotNull byte[] bytes, int offset, int length) throws IndexOutOfBoundsException {
+        return intern(bytes, ByteStrings.arrayOffset(bytes, offset, length), length, false);
+    }
+
+    /**
+     * Parse UTF-8 bytes, only creating a String if it is not already cached.
+     *
+     * @param bytes  to decode
+     * @param offset of the first byte
+     * @param length in bytes
+     * @return the parsed value
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    public E internUtf8(@NotNull byte[] bytes, int offset, int length) throws IndexOutOfBoundsException {
+        return intern(bytes, ByteStrings.arrayOffset(bytes, offset, length), length, true);
+    }
+
+    /**
+     * Parse ISO-8859-1 bytes off heap, only creating a String if it is not already cached.
+     *
+     * @param address of the first byte
+     * @param length  in bytes
+     * @return the parsed value
+     */
+    public E intern(long address, int length) {
+        return intern(null, address, length, false);
+    }
+
+    /**
+     * Parse UTF-8 bytes off heap, only creating a String if it is not already cached.
+     *
+     * @param address of the first byte
+     * @param length  in bytes
+     * @return the parsed value
+     */
+    public E internUtf8(long address, int length) {
+        return intern(null, address, length, true);
+    }
+
+    private E intern(@Nullable Object base, long offset, int length, boolean utf8) {
+        long unsignedHash = ByteStrings.hash32(base, offset, length, utf8);
+        if (unsignedHash == ByteStrings.MALFORMED)
+            return intern(ByteStrings.malformed(base, offset, length));
+        int hash = (int) unsignedHash;
+        int h = hash & mask;
+        ParsedData<E> s = interner[h];
+        if (s != null && ByteStrings.isEqual(s.string, base, offset, length, utf8))
+            return hit(s);
+        int h2 = (hash >> shift) & mask;
+        ParsedData<E> s2 = interner[h2];
+        if (s2 != null && ByteStrings.isEqual(s2.string, base, offset, length, utf8))
+            return hit(s2);
+        return miss(hash, ByteStrings.toString(base, offset, length, utf8));
+    }
+
+    private E hit(@NotNull ParsedData<E> data) {
+        hits++;
+        if (evictionPolicy == EvictionPolicy.CLOCK) {
+            // only write when it changes so a hit doesn't dirty the cache line.
+            if (data.uses == 0)
+                data.uses = 1;
+        } else if (evictionPolicy == EvictionPolicy.FREQUENCY && data.uses < Integer.MAX_VALUE) {
+            data.uses++;
+        }
+        return data.e;
+    }
+
+    private E miss(int hash, @NotNull String string) {
+        misses++;
+        @NotNull ParsedData<E> s3 = new ParsedData<>(string, eFunction.apply(string), hash);
+        if (estimatedBytes(s3) > maxBytes)
+            return s3.e;
+        int h = hash & mask;
+        ParsedData<E> s = interner[h];
+        int h2 = (hash >> shift) & mask;
+        ParsedData<E> s2 = interner[h2];
+        int index;
+        if (s != null && s2 != null) {
+            index = victim(h, s, h2, s2);
+            evict(index);
+        } else if (isFull(s3) && (s != null || s2 != null)) {
+            // full, so replace the entry rather than fill the empty slot.
+            index = s == null ? h2 : h;
+            evict(index);
+        } else {
+            index = s == null ? h : h2;
+        }
+        // still full, e.g. the new value is longer or both its slots were empty, so evict from elsewhere.
+        while (isFull(s3))
+            evictNext();
+        interner[index] = s3;
+        size++;
+        estimatedBytes += estimatedBytes(s3);
 
+        if (hits + misses - windowLookups >= interner.length)
+            endOfWindow();
         return s3.e;
     }
 
+    private boolean isFull(@NotNull ParsedData<E> data) {
+        return size >= maxEntries || estimatedBytes + estimatedBytes(data) > maxBytes;
+    }
+
+    private void evict(int index) {
+        ParsedData<E> evicted = interner[index];
+        interner[index] = null;
+        evictions++;
+        size--;
+        estimatedBytes -= estimatedBytes(evicted);
+    }
+
+    // move the hand over the table to the next entry to evict, giving entries in use another chance as for victim()
+    private void evictNext() {
+        for (; ; ) {
+            int index = hand++ & mask;
+            ParsedData<E> data = interner[index];
+            if (data == null)
+                continue;
+            if (evictionPolicy == EvictionPolicy.CLOCK && data.uses != 0) {
+                data.uses = 0;
+                continue;
+            }
+            if (evictionPolicy == EvictionPolicy.FREQUENCY && data.uses != 0) {
+                data.uses >>>= 1;
+                continue;
+            }
+            evict(index);
+            return;
+        }
+    }
+
+    private int victim(int h, @NotNull ParsedData<E> s, int h2, @NotNull ParsedData<E> s2) {
+        switch (evictionPolicy) {
+            case CLOCK:
+                // replace an entry not used since it was last given a second chance.
+                if (s.uses == 0 && s2.uses != 0) {
+                    s2.uses = 0;
+                    return h;
+                }
+                if (s2.uses == 0 && s.uses != 0) {
+                    s.uses = 0;
+                    return h2;
+                }
+                s.uses = s2.uses = 0;
+                break;
+            case FREQUENCY:
+                // replace the least used, halving the uses of the other so old favourites can age out.
+                if (s.uses != s2.uses) {
+                    boolean first = s.uses < s2.uses;
+                    ParsedData<E> kept = first ? s2 : s;
+                    kept.uses >>>= 1;
+                    return first ? h : h2;
+                }
+                break;
+        }
+        return toggle() ? h : h2;
+    }
+
+    private void endOfWindow() {
+        long lookups = hits + misses - windowLookups;
+        long missesInWindow = misses - windowMisses;
+        long evictionsInWindow = evictions - windowEvictions;
+        windowLookups = hits + misses;
+        windowMisses = misses;
+        windowEvictions = evictions;
+        if (missesInWindow > growMissRate * lookups && evictionsInWindow > 0 && interner.length < maxCapacity)
+            grow();
+    }
+
+    private void grow() {
+        ParsedData<E>[] old = interner;
+        int n = old.length * 2;
+        interner = new ParsedData[n];
+        mask = n - 1;
+        shift = Maths.intLog2(n);
+        size = 0;
+        estimatedBytes = 0;
+        for (ParsedData<E> data : old) {
+            if (data == null)
+                continue;
+            int h = data.hash & mask;
+            if (interner[h] != null)
+                h = (data.hash >> shift) & mask;
+            if (interner[h] != null) {
+                // both slots are taken, so it is dropped.
+                evictions++;
+                continue;
+            }
+            interner[h] = data;
+            size++;
+            estimatedBytes += estimatedBytes(data);
+        }
+    }
+
+    private static long estimatedBytes(@NotNull ParsedData<?> data) {
+        return ENTRY_OVERHEAD + 2L * data.string.length();
+    }
+
     protected boolean toggle() {
         return toggle = !toggle;
     }
@@ -71,13 +349,96 @@ public class ParsingCache<E> {
         return (int) Stream.of(interner).filter(Objects::nonNull).count();
     }
 
+    /**
+     * The counters are plain fields updated by the thread using the cache, so are cheap to read but can be stale
+     * if read from another thread.
+     *
+     * @return the lookups which found a cached value.
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * @return the lookups which parsed a new value.
+     */
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * @return the values removed to make room for a new value, or dropped on growing because both their slots were taken.
+     */
+    public long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of slots, which can grow if enabled.
+     */
+    public int capacity() {
+        return interner.length;
+    }
+
+    /**
+     * @return the estimated bytes of the entries, see {@link #maxBytes(long)}
+     */
+    public long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Set the hits, misses and evictions to zero.
+     */
+    public void resetCounters() {
+        hits = misses = evictions = 0;
+        windowLookups = windowMisses = windowEvictions = 0;
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        long lookups = hits + misses;
+        return "ParsingCache{" +
+                "entries=" + size +
+                ", capacity=" + interner.length +
+                ", estimatedBytes=" + estimatedBytes +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", hitRate=" + (lookups == 0 ? "n/a" : String.format("%.1f%%", 100.0 * hits / lookups)) +
+                '}';
+    }
+
+    /**
+     * Which of the two entries a new value could go in is replaced when both are used.
+     */
+    public enum EvictionPolicy {
+        /**
+         * Alternate between the first and second choice.
+         */
+        TOGGLE,
+        /**
+         * Replace an entry which hasn't been used since the last eviction from its slots, an approximation of least
+         * recently used which keeps values parsed only once from pushing out those in use.
+         */
+        CLOCK,
+        /**
+         * Replace the entry used least, halving the uses of the other on each eviction so the counts age.
+         */
+        FREQUENCY
+    }
+
     static class ParsedData<E> {
         final String string;
         final E e;
+        final int hash;
+        int uses;
 
-        ParsedData(String string, E e) {
+        ParsedData(String string, E e, int hash) {
             this.string = string;
             this.e = e;
+            this.hash = hash;
         }
     }
 }
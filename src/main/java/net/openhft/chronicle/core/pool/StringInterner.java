@@ -56,11 +56,90 @@ public class StringInterner {
         if (StringUtils.isEqual(cs, s2))
             return s2;
         @NotNull String s3 = cs.toString();
-        interner[s == null || (s2 != null && toggle()) ? h : h2] = s3;
+        store(s == null || (s2 != null && toggle()) ? h : h2, s3);
 
         return s3;
     }
 
+    /**
+     * Intern ISO-8859-1 bytes, only creating a String if it is not already interned.
+     *
+     * @param bytes  to decode
+     * @param offset of the first byte
+     * @param length in bytes
+     * @return the String of the bytes
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    @NotNull
+    public String intern(@NotNull byte[] bytes, int offset, int length) throws IndexOutOfBoundsException {
+        return intern(bytes, ByteStrings.arrayOffset(bytes, offset, length), length, false);
+    }
+
+    /**
+     * Intern UTF-8 bytes, only creating a String if it is not already interned.
+     * Malformed input is decoded as {@link String#String(byte[], java.nio.charset.Charset)} does.
+     *
+     * @param bytes  to decode
+     * @param offset of the first byte
+     * @param length in bytes
+     * @return the String of the bytes
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    @NotNull
+    public String internUtf8(@NotNull byte[] bytes, int offset, int length) throws IndexOutOfBoundsException {
+        return intern(bytes, ByteStrings.arrayOffset(bytes, offset, length), length, true);
+    }
+
+    /**
+     * Intern ISO-8859-1 bytes off heap, only creating a String if it is not already interned.
+     *
+     * @param address of the first byte
+     * @param length  in bytes
+     * @return the String of the bytes
+     */
+    @NotNull
+    public String intern(long address, int length) {
+        return intern(null, address, length, false);
+    }
+
+    /**
+     * Intern UTF-8 bytes off heap, only creating a String if it is not already interned.
+     *
+     * @param address of the first byte
+     * @param length  in bytes
+     * @return the String of the bytes
+     */
+    @NotNull
+    public String internUtf8(long address, int length) {
+        return intern(null, address, length, true);
+    }
+
+    @NotNull
+    private String intern(@Nullable Object base, long offset, int length, boolean utf8) {
+        if (length > interner.length)
+            return ByteStrings.toString(base, offset, length, utf8);
+        long unsignedHash = ByteStrings.hash32(base, offset, length, utf8);
+        if (unsignedHash == ByteStrings.MALFORMED)
+            return intern(ByteStrings.malformed(base, offset, length));
+        int hash = (int) unsignedHash;
+        int h = hash & mask;
+        String s = interner[h];
+        if (ByteStrings.isEqual(s, base, offset, length, utf8))
+            return s;
+        int h2 = (hash >> shift) & mask;
+        String s2 = interner[h2];
+        if (ByteStrings.isEqual(s2, base, offset, length, utf8))
+            return s2;
+        @NotNull String s3 = ByteStrings.toString(base, offset, length, utf8);
+        store(s == null || (s2 != null && toggle()) ? h : h2, s3);
+
+        return s3;
+    }
+
+    protected void store(int index, @NotNull String s) {
+        interner[index] = s;
+    }
+
     protected boolean toggle() {
         return toggle = !toggle;
     }
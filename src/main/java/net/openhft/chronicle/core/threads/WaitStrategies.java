@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The wait strategies provided. From the most precise and most CPU to the least
+ * <ul>
+ * <li>{@link #BUSY_SPIN} uses a whole CPU and wakes up within a fraction of a microsecond</li>
+ * <li>{@link #timedHybrid(long)} parks until shortly before the deadline and spins for the rest, which is nearly as
+ * precise for a fraction of the CPU, if the margin covers the OS's wake up latency</li>
+ * <li>{@link #YIELD} uses a CPU unless other threads want it</li>
+ * <li>{@link #adaptive(long, long)} spins then yields for short waits and parks for long ones</li>
+ * <li>{@link #PARK} uses almost no CPU and wakes up after the deadline by the OS's wake up latency,
+ * typically 50 to 100 microseconds on Linux and much more on Windows</li>
+ * </ul>
+ */
+public enum WaitStrategies implements WaitStrategy {
+    BUSY_SPIN {
+        @Override
+        public void waitUntil(long deadlineNs) {
+            while (deadlineNs > System.nanoTime())
+                ThreadHints.onSpinWait();
+        }
+    },
+    YIELD {
+        @Override
+        public void waitUntil(long deadlineNs) {
+            while (deadlineNs > System.nanoTime())
+                Thread.yield();
+        }
+    },
+    PARK {
+        @Override
+        public void waitUntil(long deadlineNs) {
+            park(deadlineNs, 0);
+        }
+    };
+
+    // park until the margin before the deadline, returning false if interrupted.
+    static boolean park(long deadlineNs, long marginNs) {
+        for (long remaining; (remaining = deadlineNs - marginNs - System.nanoTime()) > 0; ) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.currentThread().isInterrupted())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Spin for the start of the wait, then yield, then park for the rest. Short waits are precise and long waits
+     * use little CPU, but may wake up late.
+     *
+     * @param spinNanos  to spin for before yielding
+     * @param yieldNanos to yield for before parking
+     * @return the strategy
+     */
+    @NotNull
+    public static WaitStrategy adaptive(long spinNanos, long yieldNanos) {
+        if (spinNanos < 0 || yieldNanos < 0)
+            throw new IllegalArgumentException("spinNanos and yieldNanos can't be negative, were " + spinNanos + " and " + yieldNanos);
+        return new Adaptive(spinNanos, yieldNanos);
+    }
+
+    /**
+     * Park until the margin before the deadline, then spin until the deadline.
+     *
+     * @param spinMarginNanos to spin for at the end of the wait, larger than the OS's wake up latency
+     * @return the strategy
+     */
+    @NotNull
+    public static WaitStrategy timedHybrid(long spinMarginNanos) {
+        if (spinMarginNanos < 0)
+            throw new IllegalArgumentException("spinMarginNanos can't be negative, was " + spinMarginNanos);
+        return new TimedHybrid(spinMarginNanos);
+    }
+
+    static final class Adaptive implements WaitStrategy {
+        private final long spinNanos;
+        private final long yieldNanos;
+
+        Adaptive(long spinNanos, long yieldNanos) {
+            this.spinNanos = spinNanos;
+            this.yieldNanos = yieldNanos;
+        }
+
+        @Override
+        public void waitUntil(long deadlineNs) {
+            long start = System.nanoTime();
+            long spinUntil = Math.min(deadlineNs, start + spinNanos);
+            BUSY_SPIN.waitUntil(spinUntil);
+            long yieldUntil = Math.min(deadlineNs, spinUntil + yieldNanos);
+            YIELD.waitUntil(yieldUntil);
+            park(deadlineNs, 0);
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return "adaptive(spin " + spinNanos + " ns, yield " + yieldNanos + " ns)";
+        }
+    }
+
+    static final class TimedHybrid implements WaitStrategy {
+        private final long spinMarginNanos;
+
+        TimedHybrid(long spinMarginNanos) {
+            this.spinMarginNanos = spinMarginNanos;
+        }
+
+        @Override
+        public void waitUntil(long deadlineNs) {
+            if (park(deadlineNs, spinMarginNanos))
+                BUSY_SPIN.waitUntil(deadlineNs);
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return "timedHybrid(spin " + spinMarginNanos + " ns)";
+        }
+    }
+}
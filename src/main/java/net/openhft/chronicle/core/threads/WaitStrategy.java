@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+/**
+ * How a thread waits until a point in time, trading the precision of waking up against the CPU used while waiting.
+ * See {@link WaitStrategies} for those provided.
+ * <p>
+ * A wait returns early, leaving the interrupt status set, if the thread is interrupted while parked or sleeping.
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+    /**
+     * Wait until {@link System#nanoTime()} reaches the deadline, returning immediately if it has passed.
+     *
+     * @param deadlineNs in terms of {@link System#nanoTime()}
+     */
+    void waitUntil(long deadlineNs);
+
+    /**
+     * @param nanos to wait from now
+     */
+    default void waitNanos(long nanos) {
+        waitUntil(System.nanoTime() + nanos);
+    }
+}
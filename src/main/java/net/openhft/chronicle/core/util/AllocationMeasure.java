@@ -16,56 +16,27 @@
 
 package net.openhft.chronicle.core.util;
 
-import net.openhft.chronicle.core.Jvm;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.management.MBeanServer;
-import javax.management.MalformedObjectNameException;
-import javax.management.ObjectName;
-import java.lang.management.ManagementFactory;
-import java.util.concurrent.atomic.AtomicLong;
-
-/*
+/**
  * Created by daniel on 06/07/2015. A class to measure how much allocation there has been on a
  * thread. Useful in tests to make sure there has been little or even zero allocation.
+ *
+ * @deprecated use {@link AllocationMeter} which can be used from any thread and nested.
  */
+@Deprecated
 public class AllocationMeasure {
 
     private static final Logger LOG = LoggerFactory.getLogger(AllocationMeasure.class);
 
-    private static final String GET_THREAD_ALLOCATED_BYTES = "getThreadAllocatedBytes";
-    private static final String[] SIGNATURE = new String[]{long.class.getName()};
     private final String threadName = Thread.currentThread().getName();
-    private final Object[] PARAMS = new Object[]{Thread.currentThread().getId()};
-    private MBeanServer mBeanServer;
-    @Nullable
-    private ObjectName name = null;
+    private final long tid = Thread.currentThread().getId();
     @NotNull
-    private AtomicLong allocated = new AtomicLong();
-    private long BYTES_USED_TO_MEASURE = 336;
-    private long tid;
+    private final AllocationMeter meter = new AllocationMeter(Thread.currentThread());
 
     public AllocationMeasure() throws IllegalStateException {
-        tid = Thread.currentThread().getId();
-        try {
-            name = new ObjectName(
-                    ManagementFactory.THREAD_MXBEAN_NAME);
-            mBeanServer = ManagementFactory.getPlatformMBeanServer();
-        } catch (MalformedObjectNameException e) {
-            Jvm.warn().on(getClass(), e);
-        }
-
-        //calibrate
-        for (int i = 0; i < 100; i++) {
-            //run a few loops to allow for startup anomalies
-            markAllocations();
-        }
-        long callibrate = threadAllocatedBytes();
-        BYTES_USED_TO_MEASURE = threadAllocatedBytes() - callibrate;
-        reset();
     }
 
     public static void main(String[] args) throws IllegalStateException {
@@ -85,22 +56,13 @@ public class AllocationMeasure {
     }
 
     public void reset() throws IllegalStateException {
-        if (tid != Thread.currentThread().getId())
-            throw new AssertionError("AllocationMeasure must not be used over more than 1 thread.");
-        allocated.set(threadAllocatedBytes());
+        checkThread();
+        meter.reset();
     }
 
-    private long threadAllocatedBytes() throws IllegalStateException {
-        try {
-            return (long) mBeanServer.invoke(
-                    name,
-                    GET_THREAD_ALLOCATED_BYTES,
-                    PARAMS,
-                    SIGNATURE
-            );
-        } catch (Exception e) {
-            throw new IllegalStateException(e);
-        }
+    private void checkThread() {
+        if (tid != Thread.currentThread().getId())
+            throw new AssertionError("AllocationMeasure must not be used over more than 1 thread.");
     }
 
     /**
@@ -110,18 +72,14 @@ public class AllocationMeasure {
      * @return The number of bytes since the last reset.
      */
     public long markAllocations() throws IllegalStateException {
-        if (tid != Thread.currentThread().getId())
-            throw new AssertionError("AllocationMeasure must not be used over more than 1 thread.");
-        long mark1 = ((threadAllocatedBytes() - BYTES_USED_TO_MEASURE) - allocated.get());
-        allocated.set(threadAllocatedBytes());
-        return mark1;
+        checkThread();
+        return meter.allocatedBytesAndReset();
     }
 
     public void printAllocations(CharSequence marker) throws IllegalStateException {
-        if (tid != Thread.currentThread().getId())
-            throw new AssertionError("AllocationMeasure must not be used over more than 1 thread.");
-        long mark1 = ((threadAllocatedBytes() - BYTES_USED_TO_MEASURE) - allocated.get());
+        checkThread();
+        long mark1 = meter.allocatedBytes();
         LOG.info(threadName + " allocated " + marker + ":" + mark1);
-        allocated.set(threadAllocatedBytes());
+        meter.reset();
     }
 }
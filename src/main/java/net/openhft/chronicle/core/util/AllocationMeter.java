@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.Jvm;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Measures the bytes allocated by one or more threads using the allocated bytes counter the JVM keeps for each thread.
+ * <p>
+ * On Java 8 reading the counter allocates arrays until the JIT compiles the read and escape analysis eliminates them.
+ * The bytes allocated by a read once compiled are calibrated at start up and excluded, so measurements are only
+ * exact once warmed up. Measuring only allocates on construction, and for scopes when nested more deeply than before
+ * on a thread.
+ * <pre>
+ * AllocationMeter.enter();
+ * // code which shouldn't allocate
+ * assertEquals(0, AllocationMeter.exit());
+ * </pre>
+ * The JIT can allocate on a thread too, e.g. when deoptimizing code it re-allocates the objects escape analysis had
+ * eliminated.
+ * <p>
+ * If the JVM doesn't support the counter, {@link #isSupported()} is false and all the measurements are 0.
+ */
+public class AllocationMeter {
+    @Nullable
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMXBean();
+    private static final ThreadLocal<Scopes> SCOPES = ThreadLocal.withInitial(Scopes::new);
+    // bytes allocated between two reads of the counter, excluded from measurements.
+    private static final long READ_OVERHEAD = calibrate();
+
+    @NotNull
+    private final long[] threadIds;
+    @NotNull
+    private final long[] start;
+
+    /**
+     * The threads should have started running, as the JVM can report a meaningless count for a thread which is
+     * still starting.
+     *
+     * @param threads to measure the allocations of, in total
+     */
+    public AllocationMeter(@NotNull Thread... threads) {
+        threadIds = new long[threads.length];
+        for (int i = 0; i < threads.length; i++)
+            threadIds[i] = threads[i].getId();
+        start = new long[threads.length];
+        reset();
+    }
+
+    @Nullable
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        try {
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (!(threadMXBean instanceof com.sun.management.ThreadMXBean))
+                return null;
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (!bean.isThreadAllocatedMemorySupported())
+                return null;
+            if (!bean.isThreadAllocatedMemoryEnabled())
+                bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        } catch (Throwable t) {
+            Jvm.debug().on(AllocationMeter.class, "Thread allocated bytes not available " + t);
+            return null;
+        }
+    }
+
+    private static long calibrate() {
+        long overhead = Long.MAX_VALUE;
+        // the smallest difference once the reads have warmed up.
+        for (int i = 0; i < 20_000; i++) {
+            long a = threadAllocatedBytes();
+            long b = threadAllocatedBytes();
+            overhead = Math.min(overhead, b - a);
+        }
+        return Math.max(0, overhead);
+    }
+
+    /**
+     * @return whether the JVM provides the allocated bytes of each thread.
+     */
+    public static boolean isSupported() {
+        return THREAD_MX_BEAN != null;
+    }
+
+    /**
+     * @return the bytes allocated by the current thread since it started, or 0 if not supported.
+     */
+    public static long threadAllocatedBytes() {
+        return threadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @param threadId of a live thread
+     * @return the bytes allocated by the thread since it started, or 0 if not supported or the thread isn't alive.
+     */
+    public static long threadAllocatedBytes(long threadId) {
+        if (THREAD_MX_BEAN == null)
+            return 0;
+        return Math.max(0, THREAD_MX_BEAN.getThreadAllocatedBytes(threadId));
+    }
+
+    /**
+     * Start measuring the allocations of the current thread, scopes can be nested.
+     */
+    public static void enter() {
+        Scopes scopes = SCOPES.get();
+        if (scopes.depth == scopes.marks.length) {
+            scopes.marks = Arrays.copyOf(scopes.marks, scopes.depth * 2);
+            scopes.reads = Arrays.copyOf(scopes.reads, scopes.depth * 2);
+        }
+        scopes.reads[scopes.depth] = scopes.readCount++;
+        scopes.marks[scopes.depth++] = threadAllocatedBytes();
+    }
+
+    /**
+     * Stop measuring the innermost scope of the current thread.
+     *
+     * @return the bytes allocated since the matching {@link #enter()}, excluding the overhead of measuring.
+     * @throws IllegalStateException if there is no scope to exit
+     */
+    public static long exit() throws IllegalStateException {
+        long allocated = threadAllocatedBytes();
+        Scopes scopes = SCOPES.get();
+        if (scopes.depth == 0)
+            throw new IllegalStateException("exit() without enter()");
+        int depth = --scopes.depth;
+        // the reads in this scope, including those of nested scopes.
+        long reads = scopes.readCount++ - scopes.reads[depth];
+        return Math.max(0, allocated - scopes.marks[depth] - reads * READ_OVERHEAD);
+    }
+
+    /**
+     * @return the number of scopes the current thread is in.
+     */
+    public static int depth() {
+        return SCOPES.get().depth;
+    }
+
+    /**
+     * Start measuring again from now.
+     */
+    public void reset() {
+        for (int i = 0; i < threadIds.length; i++)
+            start[i] = threadAllocatedBytes(threadIds[i]);
+    }
+
+    /**
+     * @return the bytes allocated by all the threads since this was created or reset.
+     */
+    public long allocatedBytes() {
+        long currentThreadId = Thread.currentThread().getId();
+        long total = 0;
+        for (int i = 0; i < threadIds.length; i++) {
+            long allocated = threadAllocatedBytes(threadIds[i]) - start[i];
+            if (threadIds[i] == currentThreadId)
+                allocated -= READ_OVERHEAD;
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
+
+    /**
+     * @return the bytes allocated since this was created or reset, then reset.
+     */
+    public long allocatedBytesAndReset() {
+        long allocated = allocatedBytes();
+        reset();
+        return allocated;
+    }
+
+    static final class Scopes {
+        // the counter on entering each scope
+        long[] marks = new long[16];
+        // the number of reads by this thread on entering each scope
+        long[] reads = new long[16];
+        long readCount;
+        int depth;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram which can be sampled by any number of threads, using the same buckets as {@link Histogram}.
+ * <p>
+ * Each recording thread has its own counters which only it writes so recording is wait free and doesn't contend
+ * with other threads. {@link #snapshot()} sums the counters of all the threads into a plain Histogram.
+ * <p>
+ * The counters of a thread are retained after it dies so its samples are still included.
+ */
+public class ConcurrentHistogram implements NanoSampler {
+    private final int powersOf2;
+    private final int fractionBits;
+    private final double minValue;
+    private final long floor;
+    private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Recorder> recorderTL = ThreadLocal.withInitial(this::newRecorder);
+
+    public ConcurrentHistogram() {
+        this(42, 4);
+    }
+
+    public ConcurrentHistogram(int powersOf2, int fractionBits) {
+        this(powersOf2, fractionBits, 1.0);
+    }
+
+    public ConcurrentHistogram(int powersOf2, int fractionBits, double minValue) {
+        this.powersOf2 = powersOf2;
+        this.fractionBits = fractionBits;
+        this.minValue = minValue;
+        this.floor = Double.doubleToRawLongBits(minValue) >> (52 - fractionBits);
+    }
+
+    @NotNull
+    private Recorder newRecorder() {
+        Recorder recorder = new Recorder(powersOf2 << fractionBits);
+        recorders.add(recorder);
+        return recorder;
+    }
+
+    public int powersOf2() {
+        return powersOf2;
+    }
+
+    public int fractionBits() {
+        return fractionBits;
+    }
+
+    /**
+     * @param time to record
+     * @return the bucket the time was recorded in, as per {@link Histogram#sample(double)}
+     */
+    public int sample(double time) {
+        int bucket = (int) ((Double.doubleToRawLongBits(time) >> (52 - fractionBits)) - floor);
+        recorderTL.get().sample(bucket);
+        return bucket;
+    }
+
+    @Override
+    public void sampleNanos(long nanos) {
+        sample(nanos);
+    }
+
+    /**
+     * Take a copy of the samples recorded so far by all threads.
+     * Samples recorded concurrently may or may not be included, but the total count always matches the buckets.
+     *
+     * @return a new Histogram
+     */
+    @NotNull
+    public Histogram snapshot() {
+        return snapshot(new Histogram(powersOf2, fractionBits, minValue));
+    }
+
+    /**
+     * Take a copy of the samples recorded so far by all threads.
+     *
+     * @param histogram to reset and copy into, which must have the same powersOf2, fractionBits and minValue
+     * @return the histogram passed
+     */
+    @NotNull
+    public Histogram snapshot(@NotNull Histogram histogram) {
+        if (histogram.powersOf2() != powersOf2 || histogram.fractionBits() != fractionBits || histogram.floor() != floor)
+            throw new IllegalArgumentException("Histogram has different buckets " + histogram.powersOf2() + "/" + histogram.fractionBits());
+        histogram.reset();
+        int[] sampleCount = histogram.sampleCount();
+        long total = 0, overRange = 0;
+        for (Recorder recorder : recorders) {
+            AtomicIntegerArray counts = recorder.counts;
+            for (int i = 0; i < sampleCount.length; i++) {
+                int count = counts.get(i);
+                sampleCount[i] += count;
+                total += count;
+            }
+            long over = recorder.counters.get(Recorder.OVER_RANGE);
+            overRange += over;
+            total += over + recorder.counters.get(Recorder.UNDER_RANGE);
+        }
+        histogram.init(powersOf2, fractionBits, overRange, total, floor);
+        return histogram;
+    }
+
+    /**
+     * @return the number of samples recorded, which can be stale while threads are recording.
+     */
+    public long totalCount() {
+        long total = 0;
+        for (Recorder recorder : recorders)
+            total += recorder.counters.get(Recorder.TOTAL_COUNT);
+        return total;
+    }
+
+    /**
+     * Clear the samples of all the threads. This must not be called while any thread is recording.
+     */
+    public void reset() {
+        for (Recorder recorder : recorders) {
+            AtomicIntegerArray counts = recorder.counts;
+            for (int i = 0; i < counts.length(); i++)
+                counts.set(i, 0);
+            for (int i = 0; i < recorder.counters.length(); i++)
+                recorder.counters.set(i, 0);
+        }
+    }
+
+    /**
+     * @return the number of threads which have recorded.
+     */
+    public int recorderCount() {
+        return recorders.size();
+    }
+
+    static final class Recorder {
+        static final int OVER_RANGE = 0;
+        static final int UNDER_RANGE = 1;
+        static final int TOTAL_COUNT = 2;
+        final AtomicIntegerArray counts;
+        final AtomicLongArray counters = new AtomicLongArray(3);
+
+        Recorder(int buckets) {
+            counts = new AtomicIntegerArray(buckets);
+        }
+
+        // only called by the owning thread so a lazySet is enough for readers to see each update.
+        void sample(int bucket) {
+            if (bucket >= counts.length())
+                increment(OVER_RANGE);
+            else if (bucket >= 0)
+                counts.lazySet(bucket, counts.get(bucket) + 1);
+            else
+                increment(UNDER_RANGE);
+            increment(TOTAL_COUNT);
+        }
+
+        private void increment(int counter) {
+            counters.lazySet(counter, counters.get(counter) + 1);
+        }
+    }
+}
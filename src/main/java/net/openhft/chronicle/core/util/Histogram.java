@@ -16,14 +16,16 @@
 
 package net.openhft.chronicle.core.util;
 
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.nio.ByteBuffer;
 import java.text.DecimalFormat;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.function.DoubleFunction;
-import java.util.stream.DoubleStream;
+import java.util.function.DoubleUnaryOperator;
 
 /*
  * Created by Peter Lawrey on 10/07/15.
@@ -33,6 +35,11 @@ public class Histogram implements NanoSampler {
     static final DecimalFormat F3 = new DecimalFormat("0.000");
     static final DecimalFormat F2 = new DecimalFormat("0.00");
     static final DecimalFormat F1 = new DecimalFormat("0.0");
+    /**
+     * The most fractions {@link #percentilesFor(long, double[])} sets.
+     */
+    public static final int MAX_PERCENTILES = 8;
+    static final int ENCODING_VERSION = 1;
     private int fractionBits;
     private int powersOf2;
     private long overRange;
@@ -143,6 +150,59 @@ public class Histogram implements NanoSampler {
         return bucket;
     }
 
+    /**
+     * Correct for coordinated omission after recording, as if each sample had been recorded with
+     * {@link NanoSampler#sampleNanos(long, long)}. Each sample is taken to be the middle of its bucket and samples
+     * over range can't be corrected. Samples which would take a bucket past Integer.MAX_VALUE are counted as over range.
+     *
+     * @param expectedInterval the expected time between the start of each sample
+     * @return a new corrected Histogram
+     */
+    @NotNull
+    public Histogram copyCorrectedForCoordinatedOmission(double expectedInterval) {
+        Histogram h = new Histogram(powersOf2, fractionBits);
+        h.init(powersOf2, fractionBits, 0, 0, floor);
+        h.add(this);
+        if (!(expectedInterval > 0))
+            return h;
+        int length = powersOf2 << fractionBits;
+        for (int i = 0; i < length; i++) {
+            int count = sampleCount[i];
+            if (count == 0)
+                continue;
+            double value = bucketValue(i);
+            long missing = (long) ((value - expectedInterval) / expectedInterval);
+            // add the count to each bucket which value - k * expectedInterval falls in, for k = 1 .. missing
+            for (long k = 1; k <= missing; ) {
+                int bucket = (int) ((Double.doubleToRawLongBits(value - k * expectedInterval) >> (52 - fractionBits)) - floor);
+                long kEnd = missing;
+                if (bucket >= 0) {
+                    double lowest = Double.longBitsToDouble((bucket + floor) << (52 - fractionBits));
+                    kEnd = Math.max(k, Math.min(missing, (long) ((value - lowest) / expectedInterval)));
+                    int b = Math.min(bucket, length - 1);
+                    long sum = h.sampleCount[b] + (kEnd - k + 1) * count;
+                    if (sum > Integer.MAX_VALUE) {
+                        h.overRange += sum - Integer.MAX_VALUE;
+                        sum = Integer.MAX_VALUE;
+                    }
+                    h.sampleCount[b] = (int) sum;
+                }
+                h.totalCount += (kEnd - k + 1) * count;
+                k = kEnd + 1;
+            }
+        }
+        return h;
+    }
+
+    /**
+     * @param bucket index into {@link #sampleCount()}
+     * @return the value in the middle of the bucket
+     */
+    public double bucketValue(int bucket) {
+        long bits = ((((bucket + floor) << 1) + 1) << (51 - fractionBits));
+        return Double.longBitsToDouble(bits);
+    }
+
     public double percentile(double fraction) {
         long value = (long) (totalCount * (1 - fraction));
         value -= overRange;
@@ -150,33 +210,43 @@ public class Histogram implements NanoSampler {
             return Double.POSITIVE_INFINITY;
         for (int i = sampleCount.length - 1; i >= 0; i--) {
             value -= sampleCount[i];
-            if (value < 0) {
-                long bits = ((((i + floor) << 1) + 1) << (51 - fractionBits));
-                return Double.longBitsToDouble(bits);
-            }
+            if (value < 0)
+                return bucketValue(i);
         }
         return 1;
     }
 
     public static double[] percentilesFor(long count) {
-        List<Double> values = new ArrayList<>();
-        values.add(50 / 100.0);
-        values.add(90 / 100.0);
-        values.add(99 / 100.0);
+        double[] fractions = new double[MAX_PERCENTILES];
+        return Arrays.copyOf(fractions, percentilesFor(count, fractions));
+    }
+
+    /**
+     * Without allocating, set the percentiles to report for a number of samples.
+     *
+     * @param count     of samples
+     * @param fractions to set, with a length of at least {@link #MAX_PERCENTILES}
+     * @return the number of fractions set.
+     */
+    public static int percentilesFor(long count, @NotNull double[] fractions) {
+        int n = 0;
+        fractions[n++] = 50 / 100.0;
+        fractions[n++] = 90 / 100.0;
+        fractions[n++] = 99 / 100.0;
         if (count > 10_000) {
-            values.add(99.7 / 100.0);
+            fractions[n++] = 99.7 / 100.0;
             if (count > 100_000) {
-                values.add(99.9 / 100.0);
+                fractions[n++] = 99.9 / 100.0;
                 if (count > 1_000_000) {
-                    values.add(99.97 / 100.0);
+                    fractions[n++] = 99.97 / 100.0;
                     if (count > 10_000_000) {
-                        values.add(99.99 / 100.0);
+                        fractions[n++] = 99.99 / 100.0;
                     }
                 }
             }
         }
-        values.add(100 / 100.0);
-        return values.stream().mapToDouble(d -> d).toArray();
+        fractions[n++] = 100 / 100.0;
+        return n;
     }
 
     @NotNull
@@ -185,8 +255,22 @@ public class Histogram implements NanoSampler {
     }
 
     @NotNull
-    public double[] getPercentiles(double[] percentileFor) {
-        return DoubleStream.of(percentileFor).map(this::percentile).toArray();
+    public double[] getPercentiles(@NotNull double[] percentileFor) {
+        double[] percentiles = new double[percentileFor.length];
+        getPercentiles(percentileFor, percentileFor.length, percentiles);
+        return percentiles;
+    }
+
+    /**
+     * Without allocating, get the values at a number of percentiles.
+     *
+     * @param percentileFor the fractions to get, e.g. 0.99
+     * @param length        the number of fractions to get
+     * @param percentiles   to set to the values
+     */
+    public void getPercentiles(@NotNull double[] percentileFor, int length, @NotNull double[] percentiles) {
+        for (int i = 0; i < length; i++)
+            percentiles[i] = percentile(percentileFor[i]);
     }
 
     @NotNull
@@ -196,34 +280,39 @@ public class Histogram implements NanoSampler {
 
     @NotNull
     public String toMicrosFormat(@NotNull DoubleFunction<Double> toMicros) {
+        return toMicrosFormat(totalCount, this::percentile, toMicros);
+    }
+
+    @NotNull
+    static String toMicrosFormat(long totalCount, @NotNull DoubleUnaryOperator percentile, @NotNull DoubleFunction<Double> toMicros) {
         if (totalCount < 1_000_000)
             return "50/90 99/99.9 99.99 - worst was " +
-                    p(toMicros.apply(percentile(0.5))) + " / " +
-                    p(toMicros.apply(percentile(0.9))) + "  " +
-                    p(toMicros.apply(percentile(0.99))) + " / " +
-                    p(toMicros.apply(percentile(0.999))) + "  " +
-                    p(toMicros.apply(percentile(0.9999))) + " - " +
-                    p(toMicros.apply(percentile(1)));
+                    p(toMicros.apply(percentile.applyAsDouble(0.5))) + " / " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.9))) + "  " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.99))) + " / " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.999))) + "  " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.9999))) + " - " +
+                    p(toMicros.apply(percentile.applyAsDouble(1)));
 
         if (totalCount < 10_000_000)
             return "50/90 99/99.9 99.99/99.999 - worst was " +
-                    p(toMicros.apply(percentile(0.5))) + " / " +
-                    p(toMicros.apply(percentile(0.9))) + "  " +
-                    p(toMicros.apply(percentile(0.99))) + " / " +
-                    p(toMicros.apply(percentile(0.999))) + "  " +
-                    p(toMicros.apply(percentile(0.9999))) + " / " +
-                    p(toMicros.apply(percentile(0.99999))) + " - " +
-                    p(toMicros.apply(percentile(1)));
+                    p(toMicros.apply(percentile.applyAsDouble(0.5))) + " / " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.9))) + "  " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.99))) + " / " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.999))) + "  " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.9999))) + " / " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.99999))) + " - " +
+                    p(toMicros.apply(percentile.applyAsDouble(1)));
 
         return "50/90 99/99.9 99.99/99.999 99.9999/worst was " +
-                p(toMicros.apply(percentile(0.5))) + " / " +
-                p(toMicros.apply(percentile(0.9))) + "  " +
-                p(toMicros.apply(percentile(0.99))) + " / " +
-                p(toMicros.apply(percentile(0.999))) + "  " +
-                p(toMicros.apply(percentile(0.9999))) + " / " +
-                p(toMicros.apply(percentile(0.99999))) + "  " +
-                p(toMicros.apply(percentile(0.999999))) + " / " +
-                p(toMicros.apply(percentile(1)));
+                p(toMicros.apply(percentile.applyAsDouble(0.5))) + " / " +
+                p(toMicros.apply(percentile.applyAsDouble(0.9))) + "  " +
+                p(toMicros.apply(percentile.applyAsDouble(0.99))) + " / " +
+                p(toMicros.apply(percentile.applyAsDouble(0.999))) + "  " +
+                p(toMicros.apply(percentile.applyAsDouble(0.9999))) + " / " +
+                p(toMicros.apply(percentile.applyAsDouble(0.99999))) + "  " +
+                p(toMicros.apply(percentile.applyAsDouble(0.999999))) + " / " +
+                p(toMicros.apply(percentile.applyAsDouble(1)));
     }
 
     @NotNull
@@ -233,50 +322,55 @@ public class Histogram implements NanoSampler {
 
     @NotNull
     public String toLongMicrosFormat(@NotNull DoubleFunction<Double> toMicros) {
+        return toLongMicrosFormat(totalCount, this::percentile, toMicros);
+    }
+
+    @NotNull
+    static String toLongMicrosFormat(long totalCount, @NotNull DoubleUnaryOperator percentile, @NotNull DoubleFunction<Double> toMicros) {
         if (totalCount < 1_000_000)
             return "50/90 97/99 99.7/99.9 99.97/99.99 - worst was " +
-                    p(toMicros.apply(percentile(0.5))) + " / " +
-                    p(toMicros.apply(percentile(0.9))) + "  " +
-                    p(toMicros.apply(percentile(0.97))) + " / " +
-                    p(toMicros.apply(percentile(0.99))) + "  " +
-                    p(toMicros.apply(percentile(0.997))) + " / " +
-                    p(toMicros.apply(percentile(0.999))) + "  " +
-                    p(toMicros.apply(percentile(0.9997))) + " / " +
-                    p(toMicros.apply(percentile(0.9999))) + " - " +
-                    p(toMicros.apply(percentile(1)));
+                    p(toMicros.apply(percentile.applyAsDouble(0.5))) + " / " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.9))) + "  " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.97))) + " / " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.99))) + "  " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.997))) + " / " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.999))) + "  " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.9997))) + " / " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.9999))) + " - " +
+                    p(toMicros.apply(percentile.applyAsDouble(1)));
 
         if (totalCount < 10_000_000)
             return "50/90 97/99 99.7/99.9 99.97/99.99 99.997/99.999 - worst was " +
-                    p(toMicros.apply(percentile(0.5))) + " / " +
-                    p(toMicros.apply(percentile(0.9))) + "  " +
-                    p(toMicros.apply(percentile(0.97))) + " / " +
-                    p(toMicros.apply(percentile(0.99))) + "  " +
-                    p(toMicros.apply(percentile(0.997))) + " / " +
-                    p(toMicros.apply(percentile(0.999))) + "  " +
-                    p(toMicros.apply(percentile(0.9997))) + " / " +
-                    p(toMicros.apply(percentile(0.9999))) + "  " +
-                    p(toMicros.apply(percentile(0.99997))) + " / " +
-                    p(toMicros.apply(percentile(0.99999))) + " - " +
-                    p(toMicros.apply(percentile(1)));
+                    p(toMicros.apply(percentile.applyAsDouble(0.5))) + " / " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.9))) + "  " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.97))) + " / " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.99))) + "  " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.997))) + " / " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.999))) + "  " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.9997))) + " / " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.9999))) + "  " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.99997))) + " / " +
+                    p(toMicros.apply(percentile.applyAsDouble(0.99999))) + " - " +
+                    p(toMicros.apply(percentile.applyAsDouble(1)));
 
         return "50/90 97/99 99.7/99.9 99.97/99.99 99.997/99.999 99.9997/99.9999 - worst was " +
-                p(toMicros.apply(percentile(0.5))) + " / " +
-                p(toMicros.apply(percentile(0.9))) + "  " +
-                p(toMicros.apply(percentile(0.97))) + " / " +
-                p(toMicros.apply(percentile(0.99))) + "  " +
-                p(toMicros.apply(percentile(0.997))) + " / " +
-                p(toMicros.apply(percentile(0.999))) + "  " +
-                p(toMicros.apply(percentile(0.9997))) + " / " +
-                p(toMicros.apply(percentile(0.9999))) + "  " +
-                p(toMicros.apply(percentile(0.99997))) + " / " +
-                p(toMicros.apply(percentile(0.99999))) + "  " +
-                p(toMicros.apply(percentile(0.999997))) + " / " +
-                p(toMicros.apply(percentile(0.999999))) + " - " +
-                p(toMicros.apply(percentile(1)));
+                p(toMicros.apply(percentile.applyAsDouble(0.5))) + " / " +
+                p(toMicros.apply(percentile.applyAsDouble(0.9))) + "  " +
+                p(toMicros.apply(percentile.applyAsDouble(0.97))) + " / " +
+                p(toMicros.apply(percentile.applyAsDouble(0.99))) + "  " +
+                p(toMicros.apply(percentile.applyAsDouble(0.997))) + " / " +
+                p(toMicros.apply(percentile.applyAsDouble(0.999))) + "  " +
+                p(toMicros.apply(percentile.applyAsDouble(0.9997))) + " / " +
+                p(toMicros.apply(percentile.applyAsDouble(0.9999))) + "  " +
+                p(toMicros.apply(percentile.applyAsDouble(0.99997))) + " / " +
+                p(toMicros.apply(percentile.applyAsDouble(0.99999))) + "  " +
+                p(toMicros.apply(percentile.applyAsDouble(0.999997))) + " / " +
+                p(toMicros.apply(percentile.applyAsDouble(0.999999))) + " - " +
+                p(toMicros.apply(percentile.applyAsDouble(1)));
     }
 
     @NotNull
-    private String p(double v) {
+    private static String p(double v) {
         return v < 0.1 ? F3.format(v) :
                 v < 1 ? F2.format(v) :
                         v < 10 ? F1.format(v) :
@@ -302,4 +396,144 @@ public class Histogram implements NanoSampler {
     public void sampleNanos(long nanos) {
         sample(nanos);
     }
+
+    /**
+     * @return the number of bytes {@link #writeTo(ByteBuffer)} would write.
+     */
+    public int encodedSize() {
+        return (int) encode(null, 0, false);
+    }
+
+    /**
+     * Write a compact binary form of this histogram, in which runs of empty buckets take one or two bytes.
+     *
+     * @param bb to write to, which must have at least {@link #encodedSize()} remaining
+     */
+    public void writeTo(@NotNull ByteBuffer bb) {
+        encode(bb, 0, true);
+    }
+
+    /**
+     * Write a compact binary form of this histogram to native memory
+     *
+     * @param address to write to, which must have at least {@link #encodedSize()} bytes available
+     * @return the number of bytes written
+     */
+    public long writeTo(long address) {
+        return encode(null, address, true);
+    }
+
+    /**
+     * Replace the contents of this histogram with one written by {@link #writeTo(ByteBuffer)}
+     *
+     * @param bb to read from
+     * @throws IllegalArgumentException if the encoding is not supported or not valid
+     */
+    public void readFrom(@NotNull ByteBuffer bb) throws IllegalArgumentException {
+        decode(bb, 0);
+    }
+
+    /**
+     * Replace the contents of this histogram with one written by {@link #writeTo(long)}
+     *
+     * @param address to read from
+     * @return the number of bytes read
+     * @throws IllegalArgumentException if the encoding is not supported or not valid
+     */
+    public long readFrom(long address) throws IllegalArgumentException {
+        return decode(null, address);
+    }
+
+    // version, powersOf2, fractionBits, floor, totalCount, overRange then pairs of empty buckets skipped and
+    // a non-zero count, ending with a pair of zeros. All but the version are stop bit encoded.
+    private long encode(@Nullable ByteBuffer bb, long address, boolean write) {
+        long pos = address;
+        pos = writeByte(bb, pos, write, ENCODING_VERSION);
+        pos = writeStopBit(bb, pos, write, powersOf2);
+        pos = writeStopBit(bb, pos, write, fractionBits);
+        pos = writeStopBit(bb, pos, write, floor);
+        pos = writeStopBit(bb, pos, write, totalCount);
+        pos = writeStopBit(bb, pos, write, overRange);
+        int length = powersOf2 << fractionBits;
+        int skipped = 0;
+        for (int i = 0; i < length; i++) {
+            int count = sampleCount[i];
+            if (count == 0) {
+                skipped++;
+                continue;
+            }
+            pos = writeStopBit(bb, pos, write, skipped);
+            pos = writeStopBit(bb, pos, write, count & 0xFFFF_FFFFL);
+            skipped = 0;
+        }
+        pos = writeStopBit(bb, pos, write, 0);
+        pos = writeStopBit(bb, pos, write, 0);
+        return pos - address;
+    }
+
+    private static long writeStopBit(@Nullable ByteBuffer bb, long pos, boolean write, long value) {
+        while ((value & ~0x7FL) != 0) {
+            pos = writeByte(bb, pos, write, (int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        return writeByte(bb, pos, write, (int) value);
+    }
+
+    private static long writeByte(@Nullable ByteBuffer bb, long pos, boolean write, int b) {
+        if (write) {
+            if (bb == null)
+                OS.memory().writeByte(pos, (byte) b);
+            else
+                bb.put((byte) b);
+        }
+        return pos + 1;
+    }
+
+    private long decode(@Nullable ByteBuffer bb, long address) throws IllegalArgumentException {
+        long[] pos = {address};
+        int version = readByte(bb, pos);
+        if (version != ENCODING_VERSION)
+            throw new IllegalArgumentException("Unsupported Histogram encoding version " + version);
+        int powersOf2 = (int) readStopBit(bb, pos);
+        int fractionBits = (int) readStopBit(bb, pos);
+        long floor = readStopBit(bb, pos);
+        long totalCount = readStopBit(bb, pos);
+        long overRange = readStopBit(bb, pos);
+        int length = powersOf2 << fractionBits;
+        if (powersOf2 <= 0 || fractionBits < 0 || fractionBits > 30 || length >>> fractionBits != powersOf2)
+            throw new IllegalArgumentException("Invalid Histogram size " + powersOf2 + "/" + fractionBits);
+        // decode into a new array so a failed read leaves this histogram unchanged.
+        int[] counts = new int[length];
+        for (int i = 0; ; i++) {
+            i += (int) readStopBit(bb, pos);
+            int count = (int) readStopBit(bb, pos);
+            if (count == 0)
+                break;
+            if (i < 0 || i >= length)
+                throw new IllegalArgumentException("Bucket " + i + " out of range for " + powersOf2 + "/" + fractionBits);
+            counts[i] = count;
+        }
+        sampleCount = counts;
+        init(powersOf2, fractionBits, overRange, totalCount, floor);
+        return pos[0] - address;
+    }
+
+    private static long readStopBit(@Nullable ByteBuffer bb, long[] pos) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = readByte(bb, pos);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+
+    private static int readByte(@Nullable ByteBuffer bb, long[] pos) {
+        if (bb == null) {
+            Memory memory = OS.memory();
+            return memory.readByte(pos[0]++) & 0xFF;
+        }
+        pos[0]++;
+        return bb.get() & 0xFF;
+    }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.threads.ThreadHints;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A histogram sampled by one thread which another thread can take the samples since its last interval from,
+ * without blocking or resetting the recording thread.
+ * <p>
+ * The recording thread samples into an active Histogram. {@link #interval()} swaps in the inactive one, waits for
+ * any sample in progress to finish, then copies the previous active Histogram into the result and adds it to
+ * the cumulative view before clearing it for reuse.
+ */
+public class IntervalHistogram implements NanoSampler {
+    private static final AtomicLongFieldUpdater<IntervalHistogram> WRITER_SEQ =
+            AtomicLongFieldUpdater.newUpdater(IntervalHistogram.class, "writerSeq");
+
+    private final int powersOf2;
+    private final int fractionBits;
+    private final double minValue;
+    @NotNull
+    private final Histogram cumulative;
+    @NotNull
+    private volatile Histogram active;
+    @NotNull
+    private Histogram inactive;
+    // odd while the recording thread is sampling.
+    private volatile long writerSeq;
+
+    public IntervalHistogram() {
+        this(42, 4);
+    }
+
+    public IntervalHistogram(int powersOf2, int fractionBits) {
+        this(powersOf2, fractionBits, 1.0);
+    }
+
+    public IntervalHistogram(int powersOf2, int fractionBits, double minValue) {
+        this.powersOf2 = powersOf2;
+        this.fractionBits = fractionBits;
+        this.minValue = minValue;
+        cumulative = newHistogram();
+        active = newHistogram();
+        inactive = newHistogram();
+    }
+
+    @NotNull
+    private Histogram newHistogram() {
+        return new Histogram(powersOf2, fractionBits, minValue);
+    }
+
+    /**
+     * Record a sample, only one thread may call this.
+     *
+     * @param time to record
+     * @return the bucket the time was recorded in, as per {@link Histogram#sample(double)}
+     */
+    public int sample(double time) {
+        long seq = writerSeq;
+        // a volatile write so the read of active below can't happen before it.
+        writerSeq = seq + 1;
+        int bucket = active.sample(time);
+        WRITER_SEQ.lazySet(this, seq + 2);
+        return bucket;
+    }
+
+    @Override
+    public void sampleNanos(long nanos) {
+        sample(nanos);
+    }
+
+    /**
+     * @return the samples since the last interval in a new Histogram.
+     */
+    @NotNull
+    public Histogram interval() {
+        return interval(newHistogram());
+    }
+
+    /**
+     * Copy the samples since the last interval, these are also added to the cumulative view.
+     *
+     * @param histogram to reset and copy into, which must have the same powersOf2 and fractionBits
+     * @return the histogram passed
+     */
+    @NotNull
+    public synchronized Histogram interval(@NotNull Histogram histogram) {
+        Histogram previous = active;
+        active = inactive;
+        // wait for a sample which may have started on the previous histogram.
+        long seq = writerSeq;
+        if ((seq & 1) != 0)
+            while (writerSeq == seq)
+                ThreadHints.onSpinWait();
+
+        cumulative.add(previous);
+        histogram.reset();
+        histogram.add(previous);
+        previous.reset();
+        inactive = previous;
+        return histogram;
+    }
+
+    /**
+     * @return a copy of all the samples up to the last call to {@link #interval()}
+     */
+    @NotNull
+    public Histogram cumulative() {
+        return cumulative(newHistogram());
+    }
+
+    /**
+     * @param histogram to reset and copy into, which must have the same powersOf2 and fractionBits
+     * @return the histogram passed
+     */
+    @NotNull
+    public synchronized Histogram cumulative(@NotNull Histogram histogram) {
+        histogram.reset();
+        histogram.add(cumulative);
+        return histogram;
+    }
+
+    public int powersOf2() {
+        return powersOf2;
+    }
+
+    public int fractionBits() {
+        return fractionBits;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.function.DoubleFunction;
+
+/**
+ * A histogram with the same buckets as {@link Histogram} but with 64-bit counters, and a range which grows as
+ * larger values are sampled, so it can be used for very long runs without overflowing or losing the worst values.
+ * <p>
+ * Only values beyond the range of a double, i.e. infinity and NaN, are counted as over range.
+ */
+public class LongHistogram implements NanoSampler {
+    private final int fractionBits;
+    private final long floor;
+    private final int maxPowersOf2;
+    private int powersOf2;
+    private long overRange;
+    private long totalCount;
+    private long[] sampleCount;
+
+    public LongHistogram() {
+        this(16, 4);
+    }
+
+    /**
+     * @param powersOf2    the initial range
+     * @param fractionBits the number of buckets per power of 2
+     */
+    public LongHistogram(int powersOf2, int fractionBits) {
+        this(powersOf2, fractionBits, 1.0);
+    }
+
+    public LongHistogram(int powersOf2, int fractionBits, double minValue) {
+        this(Double.doubleToRawLongBits(minValue) >> (52 - fractionBits), powersOf2, fractionBits);
+    }
+
+    private LongHistogram(long floor, int powersOf2, int fractionBits) {
+        this.fractionBits = fractionBits;
+        this.floor = floor;
+        // the exponent of infinity and NaN is 0x7FF
+        this.maxPowersOf2 = (int) (0x7FF - (floor >> fractionBits));
+        this.powersOf2 = Math.min(powersOf2, maxPowersOf2);
+        sampleCount = new long[this.powersOf2 << fractionBits];
+    }
+
+    /**
+     * @param histogram to copy
+     * @return a LongHistogram with the same buckets and samples
+     */
+    @NotNull
+    public static LongHistogram from(@NotNull Histogram histogram) {
+        LongHistogram lh = new LongHistogram(histogram.floor(), histogram.powersOf2(), histogram.fractionBits());
+        lh.add(histogram);
+        return lh;
+    }
+
+    /**
+     * Copy to a Histogram with the current range. Counts larger than an int can hold are capped.
+     *
+     * @return a new Histogram
+     */
+    @NotNull
+    public Histogram toHistogram() {
+        Histogram histogram = new Histogram(powersOf2, fractionBits);
+        int[] counts = histogram.sampleCount();
+        for (int i = 0; i < sampleCount.length; i++)
+            counts[i] = (int) Math.min(Integer.MAX_VALUE, sampleCount[i]);
+        histogram.init(powersOf2, fractionBits, overRange, totalCount, floor);
+        return histogram;
+    }
+
+    public int sample(double time) {
+        int bucket = (int) ((Double.doubleToRawLongBits(time) >> (52 - fractionBits)) - floor);
+        if (bucket >= sampleCount.length)
+            grow(bucket);
+        if (bucket >= sampleCount.length)
+            overRange++;
+        else if (bucket >= 0)
+            sampleCount[bucket]++;
+        totalCount++;
+        return bucket;
+    }
+
+    private void grow(int bucket) {
+        int needed = (bucket >> fractionBits) + 1;
+        if (needed > maxPowersOf2)
+            return;
+        powersOf2 = Math.min(maxPowersOf2, Math.max(needed, powersOf2 + powersOf2 / 2));
+        sampleCount = Arrays.copyOf(sampleCount, powersOf2 << fractionBits);
+    }
+
+    @Override
+    public void sampleNanos(long nanos) {
+        sample(nanos);
+    }
+
+    public void add(@NotNull LongHistogram h) {
+        if (fractionBits != h.fractionBits || floor != h.floor)
+            throw new IllegalArgumentException("Different buckets " + h.fractionBits + "/" + h.floor);
+        if (h.sampleCount.length > sampleCount.length)
+            grow(h.sampleCount.length - 1);
+        addCounts(h.sampleCount, h.totalCount, h.overRange);
+    }
+
+    public void add(@NotNull Histogram h) {
+        if (fractionBits != h.fractionBits() || floor != h.floor())
+            throw new IllegalArgumentException("Different buckets " + h.fractionBits() + "/" + h.floor());
+        int[] counts = h.sampleCount();
+        int length = h.powersOf2() << fractionBits;
+        if (length > sampleCount.length)
+            grow(length - 1);
+        for (int i = 0; i < length; i++)
+            sampleCount[i] += counts[i];
+        totalCount += h.totalCount();
+        overRange += h.overRange();
+    }
+
+    private void addCounts(long[] counts, long totalCount, long overRange) {
+        for (int i = 0; i < counts.length; i++)
+            sampleCount[i] += counts[i];
+        this.totalCount += totalCount;
+        this.overRange += overRange;
+    }
+
+    public double percentile(double fraction) {
+        long value = (long) (totalCount * (1 - fraction));
+        value -= overRange;
+        if (value < 0)
+            return Double.POSITIVE_INFINITY;
+        for (int i = sampleCount.length - 1; i >= 0; i--) {
+            value -= sampleCount[i];
+            if (value < 0) {
+                long bits = ((((i + floor) << 1) + 1) << (51 - fractionBits));
+                return Double.longBitsToDouble(bits);
+            }
+        }
+        return 1;
+    }
+
+    @NotNull
+    public double[] getPercentiles() {
+        return getPercentiles(Histogram.percentilesFor(totalCount));
+    }
+
+    @NotNull
+    public double[] getPercentiles(@NotNull double[] percentileFor) {
+        double[] percentiles = new double[percentileFor.length];
+        getPercentiles(percentileFor, percentileFor.length, percentiles);
+        return percentiles;
+    }
+
+    public void getPercentiles(@NotNull double[] percentileFor, int length, @NotNull double[] percentiles) {
+        for (int i = 0; i < length; i++)
+            percentiles[i] = percentile(percentileFor[i]);
+    }
+
+    @NotNull
+    public String toMicrosFormat() {
+        return toMicrosFormat(t -> t / 1e3);
+    }
+
+    @NotNull
+    public String toMicrosFormat(@NotNull DoubleFunction<Double> toMicros) {
+        return Histogram.toMicrosFormat(totalCount, this::percentile, toMicros);
+    }
+
+    @NotNull
+    public String toLongMicrosFormat() {
+        return toLongMicrosFormat(t -> t / 1e3);
+    }
+
+    @NotNull
+    public String toLongMicrosFormat(@NotNull DoubleFunction<Double> toMicros) {
+        return Histogram.toLongMicrosFormat(totalCount, this::percentile, toMicros);
+    }
+
+    public int fractionBits() {
+        return fractionBits;
+    }
+
+    /**
+     * @return the current range, which grows as larger values are sampled.
+     */
+    public int powersOf2() {
+        return powersOf2;
+    }
+
+    public long floor() {
+        return floor;
+    }
+
+    public long overRange() {
+        return overRange;
+    }
+
+    public long totalCount() {
+        return totalCount;
+    }
+
+    public long[] sampleCount() {
+        return sampleCount;
+    }
+
+    public void reset() {
+        totalCount = overRange = 0;
+        Arrays.fill(sampleCount, 0);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof LongHistogram))
+            return false;
+        LongHistogram h = (LongHistogram) obj;
+        if (fractionBits != h.fractionBits || floor != h.floor || totalCount != h.totalCount || overRange != h.overRange)
+            return false;
+        int length = Math.max(sampleCount.length, h.sampleCount.length);
+        for (int i = 0; i < length; i++) {
+            long a = i < sampleCount.length ? sampleCount[i] : 0;
+            long b = i < h.sampleCount.length ? h.sampleCount[i] : 0;
+            if (a != b)
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(totalCount) * 31 + fractionBits;
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "LongHistogram{" +
+                "fractionBits=" + fractionBits +
+                ", powersOf2=" + powersOf2 +
+                ", overRange=" + overRange +
+                ", totalCount=" + totalCount +
+                ", floor=" + floor +
+                '}';
+    }
+}
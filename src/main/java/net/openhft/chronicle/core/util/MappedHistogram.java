@@ -0,0 +1,248 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.threads.ThreadHints;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * A histogram held in a memory mapped file so any number of threads and processes can sample into it, and any
+ * process can read it, using the same buckets as {@link Histogram}.
+ * <p>
+ * Each bucket is a 64-bit counter updated with {@link Memory#addLong(long, long)}. The layout is a 64 byte header of
+ * <pre>
+ * int magic, int powersOf2, int fractionBits, int unused, long floor, long overRange, long underRange
+ * </pre>
+ * followed by a long counter for each of the powersOf2 &lt;&lt; fractionBits buckets, in native byte order.
+ * <p>
+ * The histogram must not be sampled after it has been closed by this process.
+ */
+public class MappedHistogram implements NanoSampler, Closeable {
+    static final int MAGIC = 0x48495354; // HIST
+    static final int INITIALISING = -1;
+    static final int POWERS_OF_2 = 4;
+    static final int FRACTION_BITS = 8;
+    static final int FLOOR = 16;
+    static final int OVER_RANGE = 24;
+    static final int UNDER_RANGE = 32;
+    static final int HEADER_SIZE = 64;
+
+    private static final Memory MEMORY = OS.memory();
+
+    @NotNull
+    private final File file;
+    private final long address;
+    private final long mappedSize;
+    private final int powersOf2;
+    private final int fractionBits;
+    private final long floor;
+    private final int buckets;
+    private volatile boolean closed;
+
+    private MappedHistogram(@NotNull File file, long address, long mappedSize) {
+        this.file = file;
+        this.address = address;
+        this.mappedSize = mappedSize;
+        this.powersOf2 = MEMORY.readInt(address + POWERS_OF_2);
+        this.fractionBits = MEMORY.readInt(address + FRACTION_BITS);
+        this.floor = MEMORY.readLong(address + FLOOR);
+        this.buckets = powersOf2 << fractionBits;
+    }
+
+    /**
+     * Open or create a histogram file to sample into.
+     *
+     * @param file         to map
+     * @param powersOf2    the range of the histogram
+     * @param fractionBits the number of buckets per power of 2
+     * @param minValue     the smallest value recorded
+     * @return the histogram
+     * @throws IOException              if the file couldn't be mapped
+     * @throws IllegalArgumentException if the file was created with a different bucket scheme
+     */
+    @NotNull
+    public static MappedHistogram open(@NotNull File file, int powersOf2, int fractionBits, double minValue)
+            throws IOException, IllegalArgumentException {
+        long floor = Double.doubleToRawLongBits(minValue) >> (52 - fractionBits);
+        long size = HEADER_SIZE + ((long) powersOf2 << fractionBits) * 8;
+        long address = map(file, size);
+        if (MEMORY.compareAndSwapInt(address, 0, INITIALISING)) {
+            MEMORY.writeInt(address + POWERS_OF_2, powersOf2);
+            MEMORY.writeInt(address + FRACTION_BITS, fractionBits);
+            MEMORY.writeLong(address + FLOOR, floor);
+            MEMORY.writeOrderedInt(address, MAGIC);
+        }
+        try {
+            awaitInitialised(file, address);
+        } catch (IOException e) {
+            OS.unmap(address, size);
+            throw e;
+        }
+        MappedHistogram histogram = new MappedHistogram(file, address, size);
+        if (histogram.powersOf2 != powersOf2 || histogram.fractionBits != fractionBits || histogram.floor != floor) {
+            histogram.close();
+            throw new IllegalArgumentException(file + " has different buckets " + histogram.powersOf2 + "/" + histogram.fractionBits + "/" + histogram.floor);
+        }
+        return histogram;
+    }
+
+    /**
+     * Open an existing histogram file, e.g. to read it from another process.
+     *
+     * @param file to map
+     * @return the histogram
+     * @throws IOException if the file doesn't exist, isn't a histogram or couldn't be mapped
+     */
+    @NotNull
+    public static MappedHistogram open(@NotNull File file) throws IOException {
+        if (file.length() < HEADER_SIZE)
+            throw new IOException(file + " is not a histogram");
+        long address = map(file, HEADER_SIZE);
+        try {
+            awaitInitialised(file, address);
+        } catch (IOException e) {
+            OS.unmap(address, HEADER_SIZE);
+            throw e;
+        }
+        long size = HEADER_SIZE + ((long) MEMORY.readInt(address + POWERS_OF_2) << MEMORY.readInt(address + FRACTION_BITS)) * 8;
+        OS.unmap(address, HEADER_SIZE);
+        return new MappedHistogram(file, map(file, size), size);
+    }
+
+    private static long map(@NotNull File file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < size)
+                raf.setLength(size);
+            // the mapping remains valid once the file is closed.
+            return OS.map(raf.getChannel(), FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    // the caller unmaps the address if this throws.
+    private static void awaitInitialised(@NotNull File file, long address) throws IOException {
+        long end = System.currentTimeMillis() + 1000;
+        for (int magic; (magic = MEMORY.readVolatileInt(address)) != MAGIC; ) {
+            if (magic != INITIALISING || System.currentTimeMillis() > end)
+                throw new IOException(file + " is not a histogram, magic=" + Integer.toHexString(magic));
+            ThreadHints.onSpinWait();
+        }
+    }
+
+    /**
+     * @param time to record
+     * @return the bucket the time was recorded in, as per {@link Histogram#sample(double)}
+     */
+    public int sample(double time) {
+        int bucket = (int) ((Double.doubleToRawLongBits(time) >> (52 - fractionBits)) - floor);
+        if (bucket >= buckets)
+            MEMORY.addLong(address + OVER_RANGE, 1);
+        else if (bucket >= 0)
+            MEMORY.addLong(address + HEADER_SIZE + bucket * 8L, 1);
+        else
+            MEMORY.addLong(address + UNDER_RANGE, 1);
+        return bucket;
+    }
+
+    @Override
+    public void sampleNanos(long nanos) {
+        sample(nanos);
+    }
+
+    /**
+     * Take a copy of the samples recorded so far by all processes.
+     * Counts larger than an int can hold are capped.
+     *
+     * @return a new Histogram
+     */
+    @NotNull
+    public Histogram snapshot() {
+        Histogram histogram = new Histogram(powersOf2, fractionBits);
+        histogram.init(powersOf2, fractionBits, 0, 0, floor);
+        return snapshot(histogram);
+    }
+
+    /**
+     * @param histogram to reset and copy into, which must have the same powersOf2, fractionBits and minValue
+     * @return the histogram passed
+     */
+    @NotNull
+    public Histogram snapshot(@NotNull Histogram histogram) {
+        if (histogram.powersOf2() != powersOf2 || histogram.fractionBits() != fractionBits || histogram.floor() != floor)
+            throw new IllegalArgumentException("Histogram has different buckets " + histogram.powersOf2() + "/" + histogram.fractionBits());
+        histogram.reset();
+        int[] sampleCount = histogram.sampleCount();
+        long total = 0;
+        for (int i = 0; i < buckets; i++) {
+            long count = MEMORY.readVolatileLong(address + HEADER_SIZE + i * 8L);
+            sampleCount[i] = (int) Math.min(Integer.MAX_VALUE, count);
+            total += count;
+        }
+        long overRange = MEMORY.readVolatileLong(address + OVER_RANGE);
+        total += overRange + MEMORY.readVolatileLong(address + UNDER_RANGE);
+        histogram.init(powersOf2, fractionBits, overRange, total, floor);
+        return histogram;
+    }
+
+    /**
+     * @return the number of samples recorded by all processes.
+     */
+    public long totalCount() {
+        long total = MEMORY.readVolatileLong(address + OVER_RANGE) + MEMORY.readVolatileLong(address + UNDER_RANGE);
+        for (int i = 0; i < buckets; i++)
+            total += MEMORY.readVolatileLong(address + HEADER_SIZE + i * 8L);
+        return total;
+    }
+
+    public int powersOf2() {
+        return powersOf2;
+    }
+
+    public int fractionBits() {
+        return fractionBits;
+    }
+
+    @NotNull
+    public File file() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            OS.unmap(address, mappedSize);
+        } catch (IOException e) {
+            Jvm.warn().on(MappedHistogram.class, "Error on unmap of " + file, e);
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+}
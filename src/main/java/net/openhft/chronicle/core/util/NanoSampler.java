@@ -22,4 +22,20 @@ package net.openhft.chronicle.core.util;
 @FunctionalInterface
 public interface NanoSampler {
     void sampleNanos(long nanos);
+
+    /**
+     * Sample a time, correcting for coordinated omission. When a sample takes longer than the expected interval
+     * between samples, the samples which would have been taken while waiting are added, i.e. nanos - interval,
+     * nanos - 2 * interval etc. while at least the interval.
+     *
+     * @param nanos                 the time to sample
+     * @param expectedIntervalNanos the expected time between the start of each sample, ignored if not positive
+     */
+    default void sampleNanos(long nanos, long expectedIntervalNanos) {
+        sampleNanos(nanos);
+        if (expectedIntervalNanos <= 0)
+            return;
+        for (long missing = nanos - expectedIntervalNanos; missing >= expectedIntervalNanos; missing -= expectedIntervalNanos)
+            sampleNanos(missing);
+    }
 }
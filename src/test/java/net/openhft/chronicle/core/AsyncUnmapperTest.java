@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import static org.junit.Assert.*;
+
+public class AsyncUnmapperTest {
+
+    @Rule
+    public final TestName testName = new TestName();
+
+    @Test
+    public void unmapInBackground() throws IOException {
+        File file = new File(OS.TARGET, getClass().getName() + "." + testName.getMethodName() + ".deleteme");
+        file.deleteOnExit();
+
+        long size = 16 * OS.pageSize();
+        AsyncUnmapper unmapper = new AsyncUnmapper("test-unmapper", 4, 4 * size);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel fc = raf.getChannel();
+            raf.setLength(size);
+
+            long before = OS.memoryMapped();
+            int queued = 0;
+            for (int i = 0; i < 20; i++) {
+                long address = OS.map(fc, MapMode.READ_WRITE, 0, size);
+                assertTrue(OS.memoryMapped() >= before + size);
+                if (unmapper.unmap(address, size))
+                    queued++;
+            }
+            assertTrue(queued > 0);
+            assertTrue(unmapper.awaitPending(5000));
+            assertEquals(0, unmapper.pendingBytes());
+            assertEquals(0, unmapper.pendingCount());
+            assertEquals(20, unmapper.unmapped());
+            assertEquals(20 - queued, unmapper.callerUnmapped());
+            assertEquals(20, unmapper.unmapLatency().totalCount());
+            assertTrue(unmapper.maxUnmapNanos() > 0);
+            assertEquals(before, OS.memoryMapped());
+        } finally {
+            unmapper.close();
+        }
+        assertTrue(unmapper.isClosed());
+    }
+
+    @Test
+    public void unmapAfterClose() throws IOException {
+        File file = new File(OS.TARGET, getClass().getName() + "." + testName.getMethodName() + ".deleteme");
+        file.deleteOnExit();
+
+        AsyncUnmapper unmapper = new AsyncUnmapper("test-unmapper", 4, 1 << 20);
+        unmapper.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(OS.pageSize());
+            long before = OS.memoryMapped();
+            long address = OS.map(raf.getChannel(), MapMode.READ_WRITE, 0, OS.pageSize());
+            // done by the caller once closed
+            assertFalse(unmapper.unmap(address, OS.pageSize()));
+            assertEquals(before, OS.memoryMapped());
+            assertEquals(1, unmapper.callerUnmapped());
+        }
+    }
+}
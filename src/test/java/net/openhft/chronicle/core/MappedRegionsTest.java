@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class MappedRegionsTest {
+
+    @Rule
+    public final TestName testName = new TestName();
+
+    @Test
+    public void registerAndResidency() throws IOException {
+        File file = new File(OS.TARGET, getClass().getName() + "." + testName.getMethodName() + ".deleteme");
+        file.deleteOnExit();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel fc = raf.getChannel();
+            long size = 64 * OS.pageSize();
+            raf.setLength(size * 2);
+
+            int count = MappedRegions.count();
+            long address = OS.map(fc, MapMode.READ_WRITE, size, size);
+            try {
+                assertEquals(count + 1, MappedRegions.count());
+                MappedRegion region = MappedRegions.snapshot().stream()
+                        .filter(r -> r.address() == address)
+                        .findFirst().orElseThrow(AssertionError::new);
+                assertEquals(size, region.size());
+                assertEquals(size, region.offset());
+                assertEquals(64, region.pages());
+                assertEquals(MapMode.READ_WRITE, region.mode());
+                assertNotNull(region.createdHere());
+                if (region.file() != null)
+                    assertEquals(file.getAbsoluteFile(), new File(region.file()).getAbsoluteFile());
+
+                long resident = region.residentPages();
+                if (resident >= 0) {
+                    // touch half the pages
+                    for (int i = 0; i < 32; i++)
+                        OS.memory().writeLong(address + i * OS.pageSize(), i);
+                    assertTrue(region.residentPages() >= 32);
+                    assertTrue(region.residentPages() <= 64);
+                    assertEquals(1, OS.residentPages(address + 100, 8));
+                }
+                String report = MappedRegions.report();
+                assertTrue(report, report.startsWith("Memory mapped: "));
+            } finally {
+                OS.unmap(address, size);
+            }
+            assertEquals(count, MappedRegions.count());
+            assertTrue(MappedRegions.snapshot().stream().noneMatch(r -> r.address() == address));
+        }
+    }
+
+    @Test
+    public void remapTheSameAddressConcurrently() throws IOException, InterruptedException {
+        File file = new File(OS.TARGET, getClass().getName() + "." + testName.getMethodName() + ".deleteme");
+        file.deleteOnExit();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel fc = raf.getChannel();
+            long size = OS.pageSize();
+            raf.setLength(size);
+
+            int count = MappedRegions.count();
+            AtomicReference<Throwable> failed = new AtomicReference<>();
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> {
+                    try {
+                        // the kernel tends to hand back the address just unmapped by another thread.
+                        for (int i = 0; i < 20_000 && failed.get() == null; i++) {
+                            long address = OS.map(fc, MapMode.READ_WRITE, 0, size);
+                            try {
+                                assertNotNull(MappedRegions.get(address));
+                            } finally {
+                                OS.unmap(address, size);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failed.compareAndSet(null, e);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads)
+                thread.join();
+            if (failed.get() != null)
+                throw new AssertionError(failed.get());
+            assertEquals(count, MappedRegions.count());
+        }
+    }
+}
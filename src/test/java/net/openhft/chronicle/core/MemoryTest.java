@@ -19,6 +19,11 @@ package net.openhft.chronicle.core;
 import org.jetbrains.annotations.Nullable;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
 /*
  * Created by Peter Lawrey on 21/06/15.
  */
@@ -42,4 +47,130 @@ public class MemoryTest {
             memory.freeMemory(address, 1024);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testReadWriteLongs() {
+        Memory memory = OS.memory();
+        long[] longs = {1, -1, Long.MIN_VALUE, Long.MAX_VALUE, 0x0102030405060708L};
+        long address = memory.allocate(longs.length * 8);
+        try {
+            memory.writeLongs(address, longs, 0, longs.length);
+            for (int i = 0; i < longs.length; i++)
+                assertEquals(longs[i], memory.readLong(address + i * 8));
+
+            long[] longs2 = new long[longs.length + 2];
+            memory.readLongs(address, longs2, 1, longs.length);
+            assertEquals(0, longs2[0]);
+            for (int i = 0; i < longs.length; i++)
+                assertEquals(longs[i], longs2[i + 1]);
+            assertEquals(0, longs2[longs.length + 1]);
+
+            memory.writeLongs(address, longs, 0, longs.length, true);
+            for (int i = 0; i < longs.length; i++)
+                assertEquals(Long.reverseBytes(longs[i]), memory.readLong(address + i * 8));
+
+            long[] longs3 = new long[longs.length];
+            memory.readLongs(address, longs3, 0, longs.length, true);
+            assertArrayEquals(longs, longs3);
+        } finally {
+            memory.freeMemory(address, longs.length * 8);
+        }
+    }
+
+    @Test
+    public void testReadWriteIntsAndDoubles() {
+        Memory memory = OS.memory();
+        long address = memory.allocate(64);
+        try {
+            int[] ints = {1, 2, 3, 0x01020304};
+            memory.writeInts(address, ints, 0, ints.length, true);
+            assertEquals(0x04030201, memory.readInt(address + 12));
+            int[] ints2 = new int[ints.length];
+            memory.readInts(address, ints2, 0, ints.length, true);
+            assertArrayEquals(ints, ints2);
+
+            double[] doubles = {0.1, -1e300, Double.NaN, Double.MIN_VALUE};
+            memory.writeDoubles(address, doubles, 0, doubles.length);
+            assertEquals(-1e300, memory.readDouble(address + 8), 0.0);
+            double[] doubles2 = new double[doubles.length];
+            memory.readDoubles(address, doubles2, 0, doubles.length);
+            assertArrayEquals(doubles, doubles2, 0.0);
+
+            memory.writeDoubles(address, doubles, 0, doubles.length, true);
+            memory.readDoubles(address, doubles2, 0, doubles.length, true);
+            assertArrayEquals(doubles, doubles2, 0.0);
+        } finally {
+            memory.freeMemory(address, 64);
+        }
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testReadLongsOutOfBounds() {
+        Memory memory = OS.memory();
+        long address = memory.allocate(64);
+        try {
+            memory.readLongs(address, new long[4], 2, 4);
+        } finally {
+            memory.freeMemory(address, 64);
+        }
+    }
+
+    @Test
+    public void testCompareMismatchAndIndexOf() {
+        Memory memory = OS.memory();
+        int capacity = 40;
+        long address = memory.allocate(capacity);
+        long address2 = memory.allocate(capacity);
+        try {
+            for (int i = 0; i < capacity; i++) {
+                memory.writeByte(address + i, (byte) (i + 1));
+                memory.writeByte(address2 + i, (byte) (i + 1));
+            }
+            for (int length = 0; length <= capacity; length++) {
+                assertEquals(-1, memory.mismatch(address, address2, length));
+                assertEquals(0, memory.compareMemory(address, address2, length));
+                assertEquals(-1, memory.indexOf(address, length, (byte) 0));
+            }
+            for (int i = 0; i < capacity; i++) {
+                memory.writeByte(address2 + i, (byte) 0x80);
+                assertEquals(i, memory.mismatch(address, address2, capacity));
+                assertEquals(-1, memory.mismatch(address, address2, i));
+                // 0x80 is greater than any of the other values as an unsigned byte
+                assertTrue(memory.compareMemory(address, address2, capacity) < 0);
+                assertTrue(memory.compareMemory(address2, address, capacity) > 0);
+                assertEquals(i, memory.indexOf(address2, capacity, (byte) 0x80));
+                assertEquals(i, memory.indexOf(address, capacity, (byte) (i + 1)));
+                memory.writeByte(address2 + i, (byte) (i + 1));
+            }
+        } finally {
+            memory.freeMemory(address, capacity);
+            memory.freeMemory(address2, capacity);
+        }
+    }
+
+    @Test
+    public void testHash64() {
+        Memory memory = OS.memory();
+        int capacity = 32;
+        long address = memory.allocate(capacity);
+        long address2 = memory.allocate(capacity + 1);
+        try {
+            for (int i = 0; i < capacity; i++) {
+                memory.writeByte(address + i, (byte) i);
+                memory.writeByte(address2 + 1 + i, (byte) i);
+            }
+            for (int length = 0; length <= capacity; length++) {
+                long hash = memory.hash64(address, length);
+                assertEquals(hash, memory.hash64(address2 + 1, length));
+                if (length > 0)
+                    assertNotEquals(hash, memory.hash64(address, length - 1));
+            }
+            long hash = memory.hash64(address, capacity);
+            memory.writeByte(address + 17, (byte) 99);
+            assertNotEquals(hash, memory.hash64(address, capacity));
+        } finally {
+            memory.freeMemory(address, capacity);
+            memory.freeMemory(address2, capacity + 1);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NativeMemoryTrackerTest {
+
+    private static void allocateA(NativeMemoryTracker tracker, long address) {
+        tracker.allocated(address, 100);
+    }
+
+    private static void allocateB(NativeMemoryTracker tracker, long address) {
+        tracker.allocated(address, 1000);
+    }
+
+    @Test
+    public void tracksCallSites() {
+        NativeMemoryTracker tracker = new NativeMemoryTracker();
+        // the addresses are only used as keys
+        for (long i = 1; i <= 10_000; i++)
+            allocateA(tracker, i << 4);
+        for (long i = 1; i <= 20; i++)
+            allocateB(tracker, (i << 4) + 8);
+        assertEquals(10_020, tracker.liveBlockCount());
+
+        List<NativeMemoryTracker.CallSite> top = tracker.topConsumers(5);
+        assertEquals(2, top.size());
+        assertEquals(1_000_000, top.get(0).bytes);
+        assertTrue(top.get(0).site, top.get(0).site.contains("allocateA"));
+        assertEquals(20_000, top.get(1).bytes);
+        assertTrue(top.get(1).site, top.get(1).site.contains("allocateB"));
+
+        for (long i = 1; i <= 10_000; i += 2)
+            tracker.freed(i << 4);
+        // not tracked
+        tracker.freed(12345);
+        assertEquals(5_020, tracker.liveBlockCount());
+        assertEquals(500_000, tracker.topConsumers(1).get(0).bytes);
+
+        List<NativeMemoryTracker.Block> blocks = tracker.liveBlocks(0);
+        assertEquals(5_020, blocks.size());
+        for (NativeMemoryTracker.Block block : blocks)
+            assertTrue(block.address % 32 == 0 || block.size == 1000);
+
+        for (long i = 2; i <= 10_000; i += 2)
+            tracker.freed(i << 4);
+        assertEquals(20, tracker.liveBlockCount());
+        assertEquals(1, tracker.topConsumers(5).size());
+        assertEquals(0, tracker.liveBlocks(60_000).size());
+        assertTrue(tracker.report(5, 0).contains("allocateB"));
+    }
+}
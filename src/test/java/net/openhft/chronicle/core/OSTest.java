@@ -35,6 +35,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 public class OSTest {
 
@@ -147,4 +149,82 @@ public class OSTest {
         OS.unmap(address, length);
     }
 
+    @Test
+    public void testMapPretouch() throws IOException {
+        File file = new File(OS.TARGET, getClass().getName() + "." + testName.getMethodName() + ".deleteme");
+        file.deleteOnExit();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel fc = raf.getChannel();
+            long length = 16 * OS.pageSize();
+            raf.setLength(length);
+            raf.seek(OS.pageSize() * 3);
+            raf.writeLong(0x0123456789ABCDEFL);
+
+            long address = OS.map(fc, MapMode.READ_WRITE, 0, length, MemoryOption.PRETOUCH);
+            // pretouching doesn't change the contents
+            assertEquals(0x0123456789ABCDEFL, Long.reverseBytes(OS.memory().readLong(address + OS.pageSize() * 3)));
+            assertEquals(0L, OS.memory().readLong(address));
+            OS.unmap(address, length);
+
+            long address2 = OS.map(fc, MapMode.READ_ONLY, 0, length, MemoryOption.PRETOUCH, MemoryOption.HUGE_PAGES);
+            assertEquals(0x0123456789ABCDEFL, Long.reverseBytes(OS.memory().readLong(address2 + OS.pageSize() * 3)));
+            OS.unmap(address2, length);
+        }
+    }
+
+    @Test
+    public void testMapAdviseLockSync() throws IOException {
+        File file = new File(OS.TARGET, getClass().getName() + "." + testName.getMethodName() + ".deleteme");
+        file.deleteOnExit();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel fc = raf.getChannel();
+            long length = 4 * OS.pageSize();
+            raf.setLength(length);
+
+            long address = OS.map(fc, MapMode.READ_WRITE, 0, length);
+            try {
+                boolean supported = OS.advise(address, length, MemoryAdvice.SEQUENTIAL);
+                // an address part way into a page is rounded down
+                assertEquals(supported, OS.advise(address + 100, 100, MemoryAdvice.WILL_NEED));
+                assertEquals(supported, OS.advise(address, length, MemoryAdvice.RANDOM));
+
+                OS.memory().writeLong(address + OS.pageSize(), 0x0123456789ABCDEFL);
+                assertEquals(supported, OS.msync(address + OS.pageSize(), 8, true));
+                assertEquals(supported, OS.msync(address, length, false));
+                raf.seek(OS.pageSize());
+                assertEquals(0x0123456789ABCDEFL, Long.reverseBytes(raf.readLong()));
+
+                // mlock can fail if the memlock ulimit is too small.
+                if (OS.mlock(address, length))
+                    assertTrue(OS.munlock(address, length));
+
+                // changes to a shared mapping are kept after DONT_NEED
+                assertEquals(supported, OS.advise(address, length, MemoryAdvice.DONT_NEED));
+                assertEquals(0x0123456789ABCDEFL, OS.memory().readLong(address + OS.pageSize()));
+            } finally {
+                OS.unmap(address, length);
+            }
+        }
+    }
+
+    @Test
+    public void testAllocateHugePages() {
+        assumeTrue(OS.isLinux());
+        long size = 16 << 20;
+        long address = OS.memory().allocate(size, MemoryOption.HUGE_PAGES, MemoryOption.PRETOUCH);
+        try {
+            // PRETOUCH makes every page resident, the region may straddle one more.
+            long residentPages = OS.residentPages(address, size);
+            if (residentPages >= 0)
+                assertTrue(residentPages >= size / OS.pageSize());
+
+            String thp = OS.transparentHugePages();
+            assumeTrue(thp.equals("always") || (thp.equals("madvise") && Posix.AVAILABLE));
+            assertTrue(OS.hugePageBytes(address, size) > 0);
+        } finally {
+            OS.memory().freeMemory(address, size);
+        }
+    }
 }
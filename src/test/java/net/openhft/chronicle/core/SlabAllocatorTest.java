@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SlabAllocatorTest {
+
+    @Test
+    public void allocateAndFree() {
+        Memory memory = OS.memory();
+        long used = memory.nativeMemoryUsed();
+        try (SlabAllocator allocator = new SlabAllocator(memory, 64 << 10, 256, 60, 1024)) {
+            assertEquals(64, allocator.blockSizeFor(1));
+            assertEquals(256, allocator.blockSizeFor(65));
+            assertEquals(1024, allocator.blockSizeFor(1024));
+
+            Set<Long> addresses = new HashSet<>();
+            long[] blocks = new long[1000];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = allocator.allocate(200);
+                assertTrue(addresses.add(blocks[i]));
+                memory.writeLong(blocks[i] + 192, i);
+            }
+            for (int i = 0; i < blocks.length; i++)
+                assertEquals(i, memory.readLong(blocks[i] + 192));
+            assertEquals(1000 * 256, allocator.usedBytes());
+            assertEquals(4, allocator.regionCount());
+            assertEquals(used + allocator.reservedBytes(), memory.nativeMemoryUsed());
+
+            for (long block : blocks)
+                allocator.freeMemory(block, 200);
+            assertEquals(0, allocator.usedBytes());
+
+            // freed blocks are reused rather than new regions allocated.
+            for (int i = 0; i < blocks.length; i++)
+                allocator.allocate(256);
+            assertEquals(4, allocator.regionCount());
+
+            allocator.releaseAll();
+            assertEquals(0, allocator.reservedBytes());
+            assertEquals(used, memory.nativeMemoryUsed());
+
+            allocator.allocate(8);
+            assertEquals(1, allocator.regionCount());
+        }
+        assertEquals(used, memory.nativeMemoryUsed());
+    }
+
+    @Test
+    public void freeOnAnotherThread() throws InterruptedException {
+        try (SlabAllocator allocator = new SlabAllocator(OS.memory(), 4096, 64)) {
+            long[] blocks = new long[500];
+            for (int i = 0; i < blocks.length; i++)
+                blocks[i] = allocator.allocate(64);
+            Thread t = new Thread(() -> {
+                for (long block : blocks)
+                    allocator.freeMemory(block, 64);
+            });
+            t.start();
+            t.join();
+            assertEquals(0, allocator.usedBytes());
+            int regions = allocator.regionCount();
+            // blocks spilled by the other thread are shared.
+            for (int i = 0; i < 400; i++)
+                allocator.allocate(64);
+            assertEquals(regions, allocator.regionCount());
+        }
+    }
+
+    @Test
+    public void allocateConcurrentlyWithReleaseAll() throws InterruptedException {
+        // not try with resources, as close() would block on a deadlocked thread.
+        SlabAllocator allocator = new SlabAllocator(OS.memory(), 4096, 64, 256);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int size = t % 2 == 0 ? 64 : 256;
+            Thread thread = new Thread(() -> {
+                // the blocks are never used so it doesn't matter that releaseAll() invalidates them.
+                while (running.get())
+                    allocator.allocate(size);
+            }, "allocate-" + t);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        Thread releaser = new Thread(() -> {
+            for (int i = 0; i < 2_000; i++)
+                allocator.releaseAll();
+            running.set(false);
+        }, "releaseAll");
+        releaser.setDaemon(true);
+        releaser.start();
+        threads.add(releaser);
+        // join with a timeout so a deadlock fails the test rather than hanging it.
+        for (Thread thread : threads) {
+            thread.join(20_000);
+            assertFalse(thread.getName() + " is deadlocked", thread.isAlive());
+        }
+        allocator.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooLarge() {
+        try (SlabAllocator allocator = new SlabAllocator(OS.memory(), 4096, 64)) {
+            allocator.allocate(65);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package net.openhft.chronicle.core.jlbh;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ArrivalSchedulesTest {
+
+    @Test
+    public void poissonHasTheMeanAndVarianceOfExponentialIntervals() {
+        ArrivalSchedule schedule = ArrivalSchedules.poisson(1);
+        int n = 1_000_000;
+        double sum = 0, sumSq = 0;
+        for (int i = 0; i < n; i++) {
+            long interval = schedule.nextIntervalNs(10_000);
+            assertTrue(interval >= 0);
+            sum += interval;
+            sumSq += (double) interval * interval;
+        }
+        double mean = sum / n;
+        double stdDev = Math.sqrt(sumSq / n - mean * mean);
+        assertEquals(10_000, mean, 50);
+        // the standard deviation of an exponential distribution is its mean
+        assertEquals(10_000, stdDev, 100);
+    }
+
+    @Test
+    public void poissonIsRepeatableForASeed() {
+        ArrivalSchedule a = ArrivalSchedules.poisson(42);
+        ArrivalSchedule b = ArrivalSchedules.poisson(42);
+        for (int i = 0; i < 100; i++)
+            assertEquals(a.nextIntervalNs(1_000), b.nextIntervalNs(1_000));
+    }
+
+    @Test
+    public void onOffKeepsTheMeanInterval() {
+        ArrivalSchedule schedule = ArrivalSchedules.onOff(4, 10);
+        for (int cycle = 0; cycle < 3; cycle++) {
+            for (int i = 0; i < 3; i++)
+                assertEquals(100, schedule.nextIntervalNs(1_000));
+            assertEquals(4 * 1_000 - 3 * 100, schedule.nextIntervalNs(1_000));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onOffBurstsCantBeSlower() {
+        ArrivalSchedules.onOff(4, 0.5);
+    }
+
+    @Test
+    public void replayRepeatsTheIntervalsIgnoringTheMean() {
+        ArrivalSchedule schedule = ArrivalSchedules.replay(5, 7, 11);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(5, schedule.nextIntervalNs(1_000));
+            assertEquals(7, schedule.nextIntervalNs(1_000));
+            assertEquals(11, schedule.nextIntervalNs(1_000));
+        }
+    }
+
+    @Test
+    public void readIntervalsFromAFile() throws IOException {
+        File file = File.createTempFile("intervals", ".txt");
+        file.deleteOnExit();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("# recorded inter-arrival times in ns\n1000\n\n 2500 \n300\n");
+        }
+        assertArrayEquals(new long[]{1000, 2500, 300}, ArrivalSchedules.readIntervals(file));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readIntervalsRejectsANonNumber() throws IOException {
+        File file = File.createTempFile("intervals", ".txt");
+        file.deleteOnExit();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("1000\n1.5us\n");
+        }
+        ArrivalSchedules.readIntervals(file);
+    }
+}
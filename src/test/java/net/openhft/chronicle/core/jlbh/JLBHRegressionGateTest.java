@@ -0,0 +1,156 @@
+package net.openhft.chronicle.core.jlbh;
+
+import net.openhft.chronicle.core.jlbh.JLBHDeterministicFixtures.FixedLatencyJLBHTask;
+import net.openhft.chronicle.core.util.NanoSampler;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+import static net.openhft.chronicle.core.jlbh.JLBHDeterministicFixtures.options;
+import static net.openhft.chronicle.core.jlbh.JLBHResult.RunResult.Percentile.*;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.*;
+
+public class JLBHRegressionGateTest {
+
+    private static JLBHResult run(JLBHOptions jlbhOptions) {
+        JLBHResultConsumer resultConsumer = JLBHResultConsumer.newThreadSafeInstance();
+        new JLBH(jlbhOptions.recordOSJitter(false), printStream(), resultConsumer).start();
+        return resultConsumer.get();
+    }
+
+    private static PrintStream printStream() {
+        return new PrintStream(new ByteArrayOutputStream());
+    }
+
+    private static JLBHResult viaCSV(JLBHResult result) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        JLBHResultExporter.toCSV(result, sb);
+        return JLBHResultExporter.fromCSV(new StringReader(sb.toString()));
+    }
+
+    @Test
+    public void shouldReadBackTheCSV() throws IOException {
+        JLBHResult result = run(options());
+        JLBHResult baseline = viaCSV(result);
+
+        assertThat(baseline.endToEnd().eachRunSummary(), equalTo(result.endToEnd().eachRunSummary()));
+        assertThat(baseline.probeNames(), equalTo(result.probeNames()));
+        assertThat(baseline.probe("A").get().eachRunSummary(), equalTo(result.probe("A").get().eachRunSummary()));
+        assertTrue(baseline.endToEnd().eachRunHistogram().isEmpty());
+        assertFalse(baseline.osJitter().isPresent());
+    }
+
+    @Test
+    public void shouldPassTheSameResult() throws IOException {
+        JLBHRegressionGate gate = new JLBHRegressionGate(viaCSV(run(options())));
+        assertFalse(gate.passed());
+
+        new JLBH(options().recordOSJitter(false), printStream(), gate).start();
+
+        assertTrue(gate.report(), gate.passed());
+        assertNotNull(gate.get());
+        // 50, 90 and 99 for end to end, A and B
+        assertThat(gate.comparisons().size(), equalTo(9));
+    }
+
+    @Test
+    public void shouldFailARegressionBeyondTheTolerance() {
+        JLBHRegressionGate gate = new JLBHRegressionGate(run(options().jlbhTask(new FixedLatencyJLBHTask(1_000))))
+                .tolerance(10);
+
+        new JLBH(options().recordOSJitter(false).jlbhTask(new FixedLatencyJLBHTask(1_200)), printStream(), gate).start();
+
+        assertFalse(gate.passed());
+        String report = gate.report();
+        assertThat(report, containsString("FAILED"));
+        assertThat(report, containsString("FAILED end to end 99: baseline 1.00 us, actual 1.20 us, allowed 1.10 us, variation 0.00%"));
+        for (JLBHRegressionGate.Comparison comparison : gate.comparisons())
+            assertEquals(1_200, comparison.actualNanos(), 2);
+    }
+
+    @Test
+    public void shouldAllowAToleranceAndTheVariationPerPercentile() {
+        JLBHResult baseline = run(options());
+        JLBHRegressionGate gate = new JLBHRegressionGate(baseline)
+                .percentiles(PERCENTILE_99TH)
+                .tolerance(0)
+                .tolerance(PERCENTILE_99TH, 25)
+                .variationFactor(0);
+
+        gate.accept(run(options().jlbhTask(new FixedLatencyJLBHTask(12_000))));
+        // 12 us vs 10.5 us for the last run of the baseline.
+        JLBHRegressionGate.Comparison endToEnd = gate.comparisons().get(0);
+        assertThat(endToEnd.series(), equalTo("end to end"));
+        assertThat(endToEnd.percentile(), equalTo(PERCENTILE_99TH));
+        assertTrue(gate.report(), endToEnd.passed());
+        // the probes of the task also take 12 us
+        assertFalse(gate.passed());
+
+        gate.tolerance(PERCENTILE_99TH, 5).accept(run(options().jlbhTask(new FixedLatencyJLBHTask(12_000))));
+        assertFalse(gate.report(), gate.comparisons().get(0).passed());
+
+        // the variation between run 2 and 3 of the baseline is 11%
+        gate.variationFactor(1).accept(run(options().jlbhTask(new FixedLatencyJLBHTask(12_000))));
+        assertTrue(gate.report(), gate.comparisons().get(0).passed());
+    }
+
+    @Test
+    public void shouldFailAPercentileOnlyInTheBaseline() {
+        // more than 10,000 iterations has a 99.7th percentile.
+        JLBHRegressionGate gate = new JLBHRegressionGate(run(options().iterations(10_001)));
+
+        gate.accept(run(options()));
+
+        assertFalse(gate.passed());
+        assertThat(gate.report(), containsString("FAILED end to end 99.7: not compared, baseline "));
+        assertThat(gate.report(), containsString(", actual missing"));
+        for (JLBHRegressionGate.Comparison comparison : gate.comparisons())
+            assertEquals(comparison.percentile() != PERCENTILE_99_7TH, comparison.compared());
+    }
+
+    @Test
+    public void shouldFailAProbeOnlyInOneOfThem() {
+        JLBHRegressionGate gate = new JLBHRegressionGate(run(options()))
+                .percentiles(PERCENTILE_50TH);
+
+        gate.accept(run(options().jlbhTask(new JLBHTask() {
+            private JLBH jlbh;
+            private NanoSampler renamed;
+
+            @Override
+            public void init(JLBH jlbh) {
+                this.jlbh = jlbh;
+                renamed = jlbh.addProbe("renamed");
+            }
+
+            @Override
+            public void run(long startTimeNS) {
+                jlbh.sample(1_000);
+                renamed.sampleNanos(1_000);
+            }
+        })));
+
+        assertFalse(gate.passed());
+        String report = gate.report();
+        assertThat(report, containsString("FAILED A 50: not compared, baseline "));
+        assertThat(report, containsString("FAILED B 50: not compared, baseline "));
+        assertThat(report, containsString("FAILED renamed 50: not compared, baseline missing, actual 1.00 us"));
+    }
+
+    @Test
+    public void shouldFailWithNothingToCompare() {
+        JLBHRegressionGate gate = new JLBHRegressionGate(run(options()))
+                .percentiles(PERCENTILE_99_99TH);
+
+        gate.accept(run(options()));
+
+        assertTrue(gate.comparisons().isEmpty());
+        assertFalse(gate.passed());
+        assertThat(gate.report(), equalTo("FAILED, nothing to compare"));
+    }
+}
@@ -0,0 +1,68 @@
+package net.openhft.chronicle.core.jlbh;
+
+import net.openhft.chronicle.core.util.Histogram;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import static net.openhft.chronicle.core.jlbh.JLBHDeterministicFixtures.options;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class JLBHResultExporterTest {
+
+    private static JLBHResult predictableResult() {
+        JLBHResultConsumer resultConsumer = JLBHResultConsumer.newThreadSafeInstance();
+        new JLBH(options().recordOSJitter(false), new PrintStream(new ByteArrayOutputStream()), resultConsumer).start();
+        return resultConsumer.get();
+    }
+
+    @Test
+    public void shouldExportCSV() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        JLBHResultExporter.toCSV(predictableResult(), sb);
+        assertEquals("series,run,count,50,90,99,99.7,99.9,99.97,99.99,99.999,worst\n" +
+                "end to end,1,9000,8066,11668,12476,,,,,,12564\n" +
+                "end to end,2,9000,8066,11668,12476,,,,,,12564\n" +
+                "end to end,3,9000,6106,9708,10516,,,,,,10604\n" +
+                "A,1,9001,7066,10668,11476,,,,,,11564\n" +
+                "A,2,9000,7066,10668,11476,,,,,,11564\n" +
+                "A,3,9000,5106,8708,9516,,,,,,9604\n" +
+                "B,1,9001,100,100,100,,,,,,100\n" +
+                "B,2,9000,100,100,100,,,,,,100\n" +
+                "B,3,9000,100,100,100,,,,,,100\n", sb.toString());
+    }
+
+    @Test
+    public void shouldExportJSON() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        JLBHResultExporter.toJSON(predictableResult(), sb);
+        String json = sb.toString();
+        assertTrue(json, json.startsWith("{\n  \"endToEnd\": [\n    {\"run\": 1, \"count\": 9000, \"percentiles\": {\"50\": 8066, \"90\": 11668, \"99\": 12476, \"worst\": 12564}, \"histogram\": [[1000, 1], "));
+        assertThat(json, containsString("\n    \"A\": [\n      {\"run\": 1, \"count\": 9001, "));
+        assertThat(json, containsString("{\"run\": 3, \"count\": 9000, \"percentiles\": {\"50\": 100, \"90\": 100, \"99\": 100, \"worst\": 100}, \"histogram\": [[100, 9000]]}\n    ]\n  }\n}\n"));
+        assertThat(json, not(containsString("osJitter")));
+    }
+
+    @Test
+    public void shouldExportPercentileDistribution() throws IOException {
+        Histogram histogram = new Histogram(32, 10);
+        for (int i = 1; i <= 4; i++)
+            histogram.sample(i * 1000);
+        StringBuilder sb = new StringBuilder();
+        JLBHResultExporter.toPercentileDistribution(histogram, sb);
+        assertEquals("       Value     Percentile TotalCount 1/(1-Percentile)\n" +
+                "\n" +
+                "       1.000 0.250000000000          1           1.33\n" +
+                "       2.001 0.500000000000          2           2.00\n" +
+                "       3.001 0.750000000000          3           4.00\n" +
+                "       4.001 1.000000000000          4\n" +
+                "#[Mean    =        2.501, StdDeviation   =        1.118]\n" +
+                "#[Max     =        4.001, Total count    =            4]\n" +
+                "#[Buckets =           32, SubBuckets     =         1024]\n", sb.toString());
+    }
+}
@@ -0,0 +1,97 @@
+package net.openhft.chronicle.core.jlbh;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static net.openhft.chronicle.core.jlbh.JLBHDeterministicFixtures.options;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class JLBHSweepTest {
+
+    @Test
+    public void shouldFindTheSaturationThroughput() {
+        // given
+        final AtomicReference<JLBHSweepResult> resultRef = new AtomicReference<>();
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final JLBHOptions jlbhOptions = options().jlbhTask(new SlowingJLBHTask());
+        final JLBHSweep sweep = new JLBHSweep(jlbhOptions, new PrintStream(outputStream), resultRef::set)
+                .ramp(100_000, 400_000, 100_000)
+                .p99Threshold(2_500, TimeUnit.NANOSECONDS);
+
+        // when
+        sweep.start();
+
+        // then
+        JLBHSweepResult result = resultRef.get();
+        assertThat(result.saturationThroughput().getAsInt(), equalTo(300_000));
+        assertThat(result.results().keySet(), equalTo(new HashSet<>(Arrays.asList(100_000, 200_000, 300_000))));
+        for (int i = 1; i <= 3; i++)
+            assertEquals(i * 1_000, result.results().get(i * 100_000).endToEnd().summaryOfLastRun().get99thPercentile().toNanos(), 5);
+        assertThat(jlbhOptions.throughput, equalTo(JLBHDeterministicFixtures.THROUGHPUT));
+
+        String output = outputStream.toString();
+        assertThat(output, containsString("Target throughput:300000/s"));
+        assertThat(output, containsString("SWEEP SUMMARY"));
+        assertThat(output, containsString("Saturated at 300000/s, threshold 99: 2.5us"));
+    }
+
+    @Test
+    public void shouldRejectAnInvalidRamp() {
+        final JLBHSweep sweep = new JLBHSweep(options(), new PrintStream(new ByteArrayOutputStream()), r -> {
+        });
+        for (int[] ramp : new int[][]{{10, 9, 5}, {20, 1, 5}, {0, 10, 5}, {10, 20, 0}}) {
+            try {
+                sweep.ramp(ramp[0], ramp[1], ramp[2]);
+                fail(Arrays.toString(ramp));
+            } catch (IllegalArgumentException expected) {
+                assertThat(expected.getMessage(), containsString(" was "));
+            }
+        }
+    }
+
+    @Test
+    public void shouldRunAllThroughputsIfNotStoppingAtSaturation() {
+        // given
+        final AtomicReference<JLBHSweepResult> resultRef = new AtomicReference<>();
+        // the 99.9th percentile needs more than 100,000 iterations
+        final JLBHOptions jlbhOptions = options().jlbhTask(new SlowingJLBHTask()).iterations(100_001).runs(2);
+        final JLBHSweep sweep = new JLBHSweep(jlbhOptions, new PrintStream(new ByteArrayOutputStream()), resultRef::set)
+                .throughputs(2_000_000, 1_000_000, 4_000_000)
+                .p999Threshold(1_500, TimeUnit.NANOSECONDS)
+                .stopAtSaturation(false);
+
+        // when
+        sweep.start();
+
+        // then
+        assertThat(resultRef.get().results().keySet().toArray(), equalTo(new Object[]{2_000_000, 1_000_000, 4_000_000}));
+        assertThat(resultRef.get().saturationThroughput().getAsInt(), equalTo(1_000_000));
+    }
+
+    // the latency increases by 1 us each time the task is initialised, i.e. for each throughput.
+    static class SlowingJLBHTask implements JLBHTask {
+        private int inits;
+        private JLBH lth;
+
+        @Override
+        public void init(JLBH lth) {
+            this.lth = lth;
+            inits++;
+        }
+
+        @Override
+        public void run(long startTimeNS) {
+            lth.sample(inits * 1_000);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package net.openhft.chronicle.core.jlbh;
 
+import net.openhft.chronicle.core.util.Histogram;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
@@ -7,14 +8,20 @@ import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static net.openhft.chronicle.core.jlbh.JLBHDeterministicFixtures.*;
 import static net.openhft.chronicle.core.jlbh.JLBHResult.RunResult.Percentile.*;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 public class JLBHTest {
 
@@ -91,6 +98,14 @@ public class JLBHTest {
         assertThat(summaryOfProbeAEachRun.get(0), not(equalTo(probeALastRunSummary)));
         assertThat(summaryOfProbeAEachRun.get(1), not(equalTo(probeALastRunSummary)));
         assertThat(summaryOfProbeAEachRun.get(2), equalTo(probeALastRunSummary));
+
+        final List<Histogram> histogramOfProbeAEachRun = resultConsumer.get().probe("A").get().eachRunHistogram();
+        assertThat(histogramOfProbeAEachRun.size(), equalTo(3));
+        assertThat(histogramOfProbeAEachRun.get(2).totalCount(), equalTo((long) ITERATIONS));
+        assertThat(histogramOfProbeAEachRun.get(2).percentile(0.99), equalTo((double) probeALastRunSummary.get99thPercentile().toNanos()));
+        assertThat(resultConsumer.get().endToEnd().eachRunHistogram().size(), equalTo(3));
+        assertThat(resultConsumer.get().probeNames(), equalTo(new TreeSet<>(Arrays.asList("A", "B"))));
+        assertThat(resultConsumer.get().osJitter().get().eachRunHistogram().size(), equalTo(3));
     }
 
     @Test
@@ -111,6 +126,155 @@ public class JLBHTest {
         assertThat(probeBLastRunSummary.percentiles().size(), equalTo(4));
     }
 
+    @Test
+    public void shouldMergeSamplesFromProducerThreads() {
+        // given
+        final JLBHResultConsumer resultConsumer = resultConsumer();
+        final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        final OutputStream outputStream = new ByteArrayOutputStream();
+        JLBHOptions jlbhOptions = options()
+                .producerThreads(4)
+                .jlbhTask(new FixedLatencyJLBHTask(1_000) {
+                    @Override
+                    public void run(long startTimeNS) {
+                        threadNames.add(Thread.currentThread().getName());
+                        super.run(startTimeNS);
+                    }
+                });
+        final JLBH jlbh = new JLBH(jlbhOptions, new PrintStream(outputStream), resultConsumer);
+
+        // when
+        jlbh.start();
+
+        // then
+        String result = outputStream.toString();
+        assertThat(result, containsString("Producer threads: 4 = 1 message every 4us each"));
+        assertThat(result.split("End to End: \\(9,000\\)", -1).length, equalTo(RUNS + 1));
+        // the first run includes the probe's sample after the warm up reset, as for a single producer
+        assertThat(result.split("A \\(9,00[01]\\)", -1).length, equalTo(RUNS + 1));
+        assertTrue(threadNames.containsAll(Arrays.asList("jlbh-producer-0", "jlbh-producer-1", "jlbh-producer-2", "jlbh-producer-3")));
+
+        final List<JLBHResult.RunResult> summaryOfEachRun = resultConsumer.get().endToEnd().eachRunSummary();
+        assertThat(summaryOfEachRun.size(), equalTo(RUNS));
+        for (JLBHResult.RunResult runResult : summaryOfEachRun) {
+            assertThat(runResult.get50thPercentile(), equalTo(runResult.getWorst()));
+            assertEquals(1_000, runResult.getWorst().toNanos(), 1);
+        }
+    }
+
+    @Test
+    public void shouldRecordAllocationsWhenAsked() {
+        // given
+        final JLBHResultConsumer resultConsumer = resultConsumer();
+        final OutputStream outputStream = new ByteArrayOutputStream();
+        JLBHOptions jlbhOptions = options()
+                .recordAllocations(true)
+                .jlbhTask(new FixedLatencyJLBHTask(1_000) {
+                    byte[] bytes;
+
+                    @Override
+                    public void run(long startTimeNS) {
+                        bytes = new byte[1_000];
+                        super.run(startTimeNS);
+                    }
+                });
+        final JLBH jlbh = new JLBH(jlbhOptions, new PrintStream(outputStream), resultConsumer);
+
+        // when
+        jlbh.start();
+
+        // then
+        assertThat(outputStream.toString().split("Allocation: +[\\d,.]+ bytes/iteration, GC: [\\d,]+ collections taking [\\d,]+ ms", -1).length, equalTo(RUNS + 1));
+        final List<JLBHResult.AllocationResult> allocations = resultConsumer.get().eachRunAllocation();
+        assertThat(allocations.size(), equalTo(RUNS));
+        for (JLBHResult.AllocationResult allocation : allocations) {
+            assertEquals(allocation.allocatedBytes() / (double) ITERATIONS, allocation.allocatedBytesPerIteration(), 1e-9);
+            assertTrue(allocation.gcCount() >= 0);
+        }
+        // a GC can add the unused part of the thread's TLAB to its allocated bytes, so check a run without one.
+        final JLBHResult.AllocationResult withoutGC = allocations.stream()
+                .filter(a -> a.gcCount() == 0)
+                .reduce((a, b) -> b)
+                .orElse(null);
+        assumeTrue(withoutGC != null);
+        // a byte[1000] is at least 1,012 bytes with its header
+        assertEquals(1_030, withoutGC.allocatedBytesPerIteration(), 30);
+    }
+
+    @Test
+    public void shouldNotRecordAllocationsByDefault() {
+        final JLBHResultConsumer resultConsumer = resultConsumer();
+        new JLBH(options(), printStream(), resultConsumer).start();
+        assertTrue(resultConsumer.get().eachRunAllocation().isEmpty());
+    }
+
+    @Test
+    public void shouldStartAtTheIntendedTimesOfTheArrivalSchedule() {
+        // given
+        final OutputStream outputStream = new ByteArrayOutputStream();
+        final long[] startTimes = new long[ITERATIONS];
+        JLBHOptions jlbhOptions = options()
+                .runs(1)
+                .arrivalSchedule(() -> ArrivalSchedules.replay(1_000, 3_000))
+                .jlbhTask(new FixedLatencyJLBHTask(1_000) {
+                    int count;
+
+                    @Override
+                    public void run(long startTimeNS) {
+                        startTimes[count++] = startTimeNS;
+                        super.run(startTimeNS);
+                    }
+
+                    @Override
+                    public void warmedUp() {
+                        count = 0;
+                    }
+                });
+
+        // when
+        new JLBH(jlbhOptions, new PrintStream(outputStream), resultConsumer()).start();
+
+        // then
+        assertThat(outputStream.toString(), containsString("Arrival schedule: replay of 2 intervals"));
+        for (int i = 1; i < ITERATIONS; i++)
+            assertEquals(i % 2 == 1 ? 1_000 : 3_000, startTimes[i] - startTimes[i - 1]);
+    }
+
+    @Test
+    public void shouldRunAPoissonScheduleOnEachProducer() {
+        final JLBHResultConsumer resultConsumer = resultConsumer();
+        final Map<String, List<Long>> startTimes = new ConcurrentHashMap<>();
+        JLBHOptions jlbhOptions = options()
+                .producerThreads(2)
+                .arrivalSchedule(ArrivalSchedules.poissonPerProducer(1))
+                .jlbhTask(new FixedLatencyJLBHTask(1_000) {
+                    @Override
+                    public void run(long startTimeNS) {
+                        String name = Thread.currentThread().getName();
+                        if (name.startsWith("jlbh-producer-"))
+                            startTimes.computeIfAbsent(name, n -> new ArrayList<>()).add(startTimeNS);
+                        super.run(startTimeNS);
+                    }
+                });
+
+        new JLBH(jlbhOptions, printStream(), resultConsumer).start();
+
+        assertEquals(RUNS, resultConsumer.get().endToEnd().eachRunSummary().size());
+        // the producers don't arrive in lockstep
+        List<Long> intervals0 = intervals(startTimes.get("jlbh-producer-0"));
+        List<Long> intervals1 = intervals(startTimes.get("jlbh-producer-1"));
+        assertEquals(intervals0.size(), intervals1.size());
+        assertNotEquals(intervals0, intervals1);
+    }
+
+    @NotNull
+    private static List<Long> intervals(@NotNull List<Long> startTimes) {
+        List<Long> intervals = new ArrayList<>();
+        for (int i = 1; i < startTimes.size(); i++)
+            intervals.add(startTimes.get(i) - startTimes.get(i - 1));
+        return intervals;
+    }
+
     private Set<Duration> percentilesUniqueLatenciesIn(JLBHResult.RunResult summaryA) {
         return summaryA.percentiles().values().stream().collect(Collectors.toSet());
     }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.jlbh;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.MemoryOption;
+import net.openhft.chronicle.core.OS;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Each iteration writes to a page of native memory which hasn't been accessed before.
+ * Compare the latencies of
+ *   -Dpretouch=false -Dhugepages=false  every iteration takes a page fault
+ *   -Dpretouch=true                     the page faults happen when the memory is allocated
+ *   -Dhugepages=true                    one fault per huge page where transparent huge pages are available
+ */
+public class PretouchJLBHMain implements JLBHTask {
+    static final int ITERATIONS = 50_000;
+    static final int WARMUP = 20_000;
+
+    final Memory memory = OS.memory();
+    final long size = (long) (ITERATIONS + WARMUP) * OS.pageSize();
+    long address;
+    long offset = 0;
+    private JLBH jlbh;
+
+    public static void main(String[] args) {
+        JLBHOptions jlbhOptions = new JLBHOptions()
+                .warmUpIterations(WARMUP)
+                .iterations(ITERATIONS)
+                .throughput(10_000)
+                .runs(1)
+                .accountForCoordinatedOmmission(true)
+                .jlbhTask(new PretouchJLBHMain());
+        new JLBH(jlbhOptions).start();
+    }
+
+    @Override
+    public void init(JLBH jlbh) {
+        this.jlbh = jlbh;
+        List<MemoryOption> options = new ArrayList<>();
+        if (Boolean.getBoolean("pretouch"))
+            options.add(MemoryOption.PRETOUCH);
+        if (Boolean.getBoolean("hugepages"))
+            options.add(MemoryOption.HUGE_PAGES);
+        long start = System.nanoTime();
+        address = memory.allocate(size, options.toArray(new MemoryOption[0]));
+        System.out.printf("Allocated %,d MiB with %s in %.1f ms, transparent huge pages: %s, in huge pages: %,d MiB%n",
+                size >> 20, options, (System.nanoTime() - start) / 1e6,
+                OS.transparentHugePages(), OS.hugePageBytes(address, size) >> 20);
+    }
+
+    @Override
+    public void run(long startTimeNS) {
+        memory.writeLong(address + offset, startTimeNS);
+        offset += OS.pageSize();
+        jlbh.sample(System.nanoTime() - startTimeNS);
+    }
+
+    @Override
+    public void complete() {
+        System.out.printf("In huge pages: %,d MiB%n", OS.hugePageBytes(address, size) >> 20);
+        memory.freeMemory(address, size);
+    }
+}
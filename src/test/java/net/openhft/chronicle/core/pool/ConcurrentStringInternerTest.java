@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.pool;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentStringInternerTest {
+    @Test
+    public void testIntern() {
+        @NotNull StringInterner si = new ConcurrentStringInterner(128);
+        for (int i = 0; i < 100; i++) {
+            si.intern("" + i);
+        }
+        assertEquals(82, si.valueCount());
+        String s = si.intern(new StringBuilder("hello"));
+        assertSame(s, si.intern("hello"));
+        assertNull(si.intern(null));
+    }
+
+    @Test
+    public void internFromManyThreads() throws InterruptedException, ExecutionException, TimeoutException {
+        @NotNull ConcurrentStringInterner si = new ConcurrentStringInterner(1024);
+        int threads = 8;
+        ExecutorService es = Executors.newFixedThreadPool(threads);
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(es.submit(() -> {
+                    StringBuilder sb = new StringBuilder();
+                    barrier.await();
+                    for (int i = 0; i < 200_000; i++) {
+                        sb.setLength(0);
+                        sb.append("key-").append(i % 2000);
+                        String s = si.intern(sb);
+                        assertEquals(sb.toString(), s);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get(30, TimeUnit.SECONDS);
+        } finally {
+            es.shutdown();
+        }
+        assertTrue(si.valueCount() <= 1024);
+        // once the threads are done, what is retained is stable
+        for (int i = 0; i < 10; i++) {
+            String s = si.intern("hit-" + i);
+            assertSame(s, si.intern("hit-" + i));
+        }
+    }
+}
@@ -21,7 +21,10 @@ import org.jetbrains.annotations.Nullable;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.junit.Assert.*;
 
 /*
@@ -38,4 +41,119 @@ public class ParsingCacheTest {
         assertSame(bd1, bd1b);
         assertEquals(2, pc.valueCount());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void internBytes() {
+        @NotNull ParsingCache<BigDecimal> pc = new ParsingCache<>(128, BigDecimal::new);
+        @Nullable BigDecimal bd1 = pc.intern("1.234");
+        byte[] bytes = "x=1.234;".getBytes(StandardCharsets.ISO_8859_1);
+        assertSame(bd1, pc.intern(bytes, 2, 5));
+        assertSame(bd1, pc.internUtf8(bytes, 2, 5));
+        @Nullable BigDecimal bd2 = pc.internUtf8(bytes, 2, 4);
+        assertEquals(new BigDecimal("1.23"), bd2);
+        assertSame(bd2, pc.intern("1.23"));
+        assertEquals(2, pc.valueCount());
+    }
+
+    @Test
+    public void countsHitsMissesAndEvictions() {
+        @NotNull ParsingCache<BigDecimal> pc = new ParsingCache<>(128, BigDecimal::new);
+        pc.intern("1.1");
+        pc.intern("1.1");
+        pc.intern("2.2");
+        pc.intern("1.1".getBytes(StandardCharsets.ISO_8859_1), 0, 3);
+        assertEquals(2, pc.hits());
+        assertEquals(2, pc.misses());
+        assertEquals(0, pc.evictions());
+        assertEquals(2 * (ParsingCache.ENTRY_OVERHEAD + 6), pc.estimatedBytes());
+        assertThat(pc.toString(), containsString("hitRate=50.0%"));
+
+        pc.resetCounters();
+        assertEquals(0, pc.hits());
+        assertEquals(0, pc.misses());
+    }
+
+    @Test
+    public void clockAndFrequencyKeepAValueInUse() {
+        for (ParsingCache.EvictionPolicy policy : ParsingCache.EvictionPolicy.values()) {
+            @NotNull ParsingCache<BigDecimal> pc = new ParsingCache<>(128, BigDecimal::new).evictionPolicy(policy);
+            for (int i = 0; i < 10_000; i++) {
+                pc.intern("0.5");
+                pc.intern("1." + i);
+            }
+            if (policy == ParsingCache.EvictionPolicy.TOGGLE) {
+                assertTrue(pc.toString(), pc.misses() > 10_001);
+            } else {
+                assertEquals(policy.toString(), 10_001, pc.misses());
+                assertTrue(pc.evictions() > 0);
+            }
+        }
+    }
+
+    @Test
+    public void maxEntries() {
+        for (ParsingCache.EvictionPolicy policy : ParsingCache.EvictionPolicy.values()) {
+            @NotNull ParsingCache<BigDecimal> pc = new ParsingCache<>(128, BigDecimal::new).maxEntries(10).evictionPolicy(policy);
+            for (int i = 0; i < 100; i++)
+                pc.intern("1." + i);
+            assertTrue(pc.valueCount() <= 10);
+            assertEquals(100, pc.misses());
+
+            // a new working set which fits is cached, even for values whose slots are empty.
+            pc.resetCounters();
+            for (int n = 0; n < 10; n++)
+                for (int i = 0; i < 5; i++)
+                    pc.intern("2." + i);
+            assertTrue(pc.valueCount() <= 10);
+            assertTrue(policy + " " + pc, pc.hits() >= 40);
+        }
+    }
+
+    @Test
+    public void maxBytes() {
+        long maxBytes = 20 * (ParsingCache.ENTRY_OVERHEAD + 2 * 6);
+        @NotNull ParsingCache<BigDecimal> pc = new ParsingCache<>(1024, BigDecimal::new).maxBytes(maxBytes);
+        for (int i = 1000; i < 2000; i++)
+            pc.intern("1." + i + "0");
+        assertTrue(pc.estimatedBytes() <= maxBytes);
+        assertTrue(pc.valueCount() <= 20);
+
+        // longer values replacing shorter ones still fit
+        for (int i = 1000; i < 2000; i++) {
+            pc.intern("1." + i + (i % 3 == 0 ? "00000000000000000000" : "0"));
+            assertTrue(pc.toString(), pc.estimatedBytes() <= maxBytes);
+        }
+        // a value larger than maxBytes on its own isn't cached
+        char[] chars = new char[(int) maxBytes];
+        Arrays.fill(chars, '1');
+        int count = pc.valueCount();
+        pc.intern(new String(chars));
+        assertEquals(count, pc.valueCount());
+    }
+
+    @Test
+    public void growsWhenTheMissRateStaysHigh() {
+        @NotNull ParsingCache<BigDecimal> pc = new ParsingCache<>(128, BigDecimal::new)
+                .growWhenMissRateAbove(0.1, 4096);
+        for (int n = 0; n < 20; n++)
+            for (int i = 0; i < 1000; i++)
+                pc.intern("1." + i);
+        assertTrue(pc.toString(), pc.capacity() > 128);
+        assertTrue(pc.toString(), pc.capacity() <= 4096);
+        // every value parsed is either still cached or was evicted.
+        assertEquals(pc.toString(), pc.misses() - pc.evictions(), pc.valueCount());
+
+        pc.resetCounters();
+        for (int i = 0; i < 1000; i++)
+            assertEquals(new BigDecimal("1." + i), pc.intern("1." + i));
+        assertTrue(pc.toString(), pc.hits() > 900);
+    }
+
+    @Test
+    public void doesNotGrowByDefault() {
+        @NotNull ParsingCache<BigDecimal> pc = new ParsingCache<>(128, BigDecimal::new);
+        for (int i = 0; i < 1000; i++)
+            pc.intern("1." + i);
+        assertEquals(128, pc.capacity());
+    }
+}
@@ -16,10 +16,14 @@
 
 package net.openhft.chronicle.core.pool;
 
+import net.openhft.chronicle.core.util.AllocationMeter;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
-import static org.junit.Assert.assertEquals;
+import java.nio.charset.StandardCharsets;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+import static org.junit.Assert.*;
 
 /*
  * Created by Peter Lawrey on 17/09/15.
@@ -33,4 +37,87 @@ public class StringInternerTest {
         }
         assertEquals(82, si.valueCount());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void internBytesFindsTheSameString() {
+        @NotNull StringInterner si = new StringInterner(128);
+        String hello = si.intern("hello");
+        byte[] bytes = "[hello]".getBytes(StandardCharsets.ISO_8859_1);
+        assertSame(hello, si.intern(bytes, 1, 5));
+        assertSame(hello, si.internUtf8(bytes, 1, 5));
+
+        String s = si.intern(bytes, 0, 7);
+        assertEquals("[hello]", s);
+        assertSame(s, si.intern(new StringBuilder("[hello]")));
+    }
+
+    @Test
+    public void internLatin1AndUtf8() {
+        @NotNull StringInterner si = new StringInterner(128);
+        for (String text : new String[]{"", "caf\u00e9", "\u20ac100", "\ud83d\ude00 smile", "\u00ff\u0080"}) {
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            String s = si.internUtf8(utf8, 0, utf8.length);
+            assertEquals(text, s);
+            assertSame(s, si.intern(text));
+            assertSame(s, si.internUtf8(utf8, 0, utf8.length));
+        }
+        byte[] latin1 = "\u00ff\u0080".getBytes(StandardCharsets.ISO_8859_1);
+        assertSame(si.intern("\u00ff\u0080"), si.intern(latin1, 0, latin1.length));
+    }
+
+    @Test
+    public void internMalformedUtf8AsStringDoes() {
+        @NotNull StringInterner si = new StringInterner(128);
+        for (byte[] bytes : new byte[][]{{'a', (byte) 0xC0, (byte) 0x80}, {(byte) 0xE2, (byte) 0x82}, {(byte) 0xED, (byte) 0xA0, (byte) 0x80}, {(byte) 0x80, 'b'}}) {
+            String expected = new String(bytes, StandardCharsets.UTF_8);
+            String s = si.internUtf8(bytes, 0, bytes.length);
+            assertEquals(expected, s);
+            assertSame(s, si.internUtf8(bytes, 0, bytes.length));
+        }
+    }
+
+    @Test
+    public void internOffHeap() {
+        @NotNull StringInterner si = new ConcurrentStringInterner(128);
+        byte[] bytes = "price \u20ac".getBytes(StandardCharsets.UTF_8);
+        long address = UNSAFE.allocateMemory(bytes.length);
+        try {
+            for (int i = 0; i < bytes.length; i++)
+                UNSAFE.putByte(address + i, bytes[i]);
+            String s = si.internUtf8(address, bytes.length);
+            assertEquals("price \u20ac", s);
+            assertSame(s, si.internUtf8(address, bytes.length));
+            assertSame(si.intern("price"), si.intern(address, 5));
+        } finally {
+            UNSAFE.freeMemory(address);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void internBytesOutOfRange() {
+        new StringInterner(128).intern(new byte[4], 2, 3);
+    }
+
+    @Test
+    public void internBytesDoesNotAllocateOnAHit() {
+        @NotNull StringInterner si = new StringInterner(128);
+        byte[] bytes = "EURUSD".getBytes(StandardCharsets.ISO_8859_1);
+        String s = si.intern(bytes, 0, bytes.length);
+        // warm up the code paths
+        for (int i = 0; i < 20_000; i++) {
+            si.intern(bytes, 0, bytes.length);
+            si.internUtf8(bytes, 0, bytes.length);
+        }
+
+        AllocationMeter.enter();
+        String s2 = null;
+        for (int i = 0; i < 1_000; i++) {
+            s2 = si.intern(bytes, 0, bytes.length);
+            si.internUtf8(bytes, 0, bytes.length);
+        }
+        long allocated = AllocationMeter.exit();
+        assertSame(s, s2);
+        if (AllocationMeter.isSupported())
+            assertEquals(0, allocated);
+    }
+}
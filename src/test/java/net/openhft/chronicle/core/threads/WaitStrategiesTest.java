@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+public class WaitStrategiesTest {
+    private static final List<WaitStrategy> STRATEGIES = Arrays.asList(
+            WaitStrategies.BUSY_SPIN,
+            WaitStrategies.YIELD,
+            WaitStrategies.PARK,
+            WaitStrategies.adaptive(10_000, 10_000),
+            WaitStrategies.timedHybrid(100_000));
+
+    @Test
+    public void waitsUntilTheDeadline() {
+        for (WaitStrategy strategy : STRATEGIES) {
+            for (long nanos : new long[]{0, 1_000, 50_000, 2_000_000}) {
+                long deadline = System.nanoTime() + nanos;
+                strategy.waitUntil(deadline);
+                long now = System.nanoTime();
+                assertTrue(strategy + " woke " + (deadline - now) + " ns early", now >= deadline);
+            }
+        }
+    }
+
+    @Test
+    public void returnsImmediatelyIfTheDeadlineHasPassed() {
+        for (WaitStrategy strategy : STRATEGIES) {
+            long start = System.nanoTime();
+            strategy.waitUntil(start - TimeUnit.SECONDS.toNanos(1));
+            assertTrue(strategy.toString(), System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+        }
+    }
+
+    @Test
+    public void parkingReturnsEarlyWhenInterrupted() {
+        for (WaitStrategy strategy : Arrays.asList(WaitStrategies.PARK, WaitStrategies.adaptive(0, 0), WaitStrategies.timedHybrid(0))) {
+            Thread.currentThread().interrupt();
+            long start = System.nanoTime();
+            strategy.waitNanos(TimeUnit.SECONDS.toNanos(10));
+            assertTrue(strategy.toString(), System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void marginCantBeNegative() {
+        WaitStrategies.timedHybrid(-1);
+    }
+}
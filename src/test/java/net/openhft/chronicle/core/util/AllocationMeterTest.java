@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class AllocationMeterTest {
+    // stops the allocations being eliminated
+    static volatile Object blackhole;
+
+    @Before
+    public void supported() {
+        assumeTrue(AllocationMeter.isSupported());
+    }
+
+    @Test
+    public void measuringDoesNotAllocate() {
+        // warm up, as deoptimizing can allocate the objects escape analysis had eliminated.
+        for (int i = 0; i < 20_000; i++) {
+            AllocationMeter.enter();
+            AllocationMeter.exit();
+        }
+        for (int i = 0; i < 10_000; i++) {
+            AllocationMeter.enter();
+            assertEquals(0, AllocationMeter.exit());
+        }
+        assertEquals(0, AllocationMeter.depth());
+    }
+
+    @Test
+    public void nestedScopes() {
+        for (int i = 0; i < 100; i++) {
+            AllocationMeter.enter();
+            blackhole = new byte[1000];
+            AllocationMeter.enter();
+            blackhole = new byte[2000];
+            int depth = AllocationMeter.depth();
+            long inner = AllocationMeter.exit();
+            long outer = AllocationMeter.exit();
+            assertEquals(2, depth);
+            // an array has a header of 12 to 24 bytes
+            assertEquals(2016, inner, 16);
+            assertEquals(3032, outer, 32);
+        }
+    }
+
+    @Test
+    public void deeplyNestedScopes() {
+        for (int i = 0; i < 40; i++)
+            AllocationMeter.enter();
+        for (int i = 0; i < 40; i++)
+            AllocationMeter.exit();
+        for (int i = 0; i < 40; i++)
+            AllocationMeter.enter();
+        blackhole = new byte[1000];
+        for (int i = 0; i < 39; i++)
+            assertEquals(1016, AllocationMeter.exit(), 16);
+        assertEquals(1016, AllocationMeter.exit(), 16);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void exitWithoutEnter() {
+        AllocationMeter.exit();
+    }
+
+    @Test
+    public void otherThreads() throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(2);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch allocated = new CountDownLatch(2);
+        CountDownLatch finish = new CountDownLatch(1);
+        Thread[] threads = new Thread[2];
+        for (int t = 0; t < threads.length; t++) {
+            int size = (t + 1) << 20;
+            threads[t] = new Thread(() -> {
+                try {
+                    ready.countDown();
+                    start.await();
+                    blackhole = new byte[size];
+                    allocated.countDown();
+                    finish.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            threads[t].start();
+        }
+        // the counter of a thread which is still starting can't be read reliably
+        ready.await();
+        AllocationMeter meter = new AllocationMeter(threads);
+        AllocationMeter meter1 = new AllocationMeter(threads[1]);
+        start.countDown();
+        allocated.await();
+
+        assertEquals(3 << 20, meter.allocatedBytes(), 1 << 16);
+        assertEquals(2 << 20, meter1.allocatedBytesAndReset(), 1 << 16);
+        assertEquals(0, meter1.allocatedBytes(), 1 << 16);
+
+        finish.countDown();
+        for (Thread thread : threads)
+            thread.join();
+    }
+
+    @Test
+    public void currentThread() {
+        AllocationMeter meter = new AllocationMeter(Thread.currentThread());
+        for (int i = 0; i < 20_000; i++)
+            meter.allocatedBytesAndReset();
+        for (int i = 0; i < 1000; i++) {
+            meter.reset();
+            assertEquals(0, meter.allocatedBytes());
+        }
+        blackhole = new long[100];
+        assertEquals(816, meter.allocatedBytes(), 16);
+    }
+}
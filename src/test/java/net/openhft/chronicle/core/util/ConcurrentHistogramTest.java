@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConcurrentHistogramTest {
+
+    @Test
+    public void sameBucketsAsHistogram() {
+        ConcurrentHistogram ch = new ConcurrentHistogram(7, 5);
+        Histogram h = new Histogram(7, 5);
+        for (int i = 0; i <= 200; i++) {
+            assertEquals(h.sample(i * 0.75), ch.sample(i * 0.75));
+        }
+        Histogram snapshot = ch.snapshot();
+        assertEquals(h, snapshot);
+        assertEquals(h.totalCount(), snapshot.totalCount());
+        assertEquals(h.overRange(), snapshot.overRange());
+        assertEquals(h.percentile(0.5), snapshot.percentile(0.5), 0);
+        assertEquals(h.percentile(0.99), snapshot.percentile(0.99), 0);
+    }
+
+    @Test
+    public void multipleThreads() throws InterruptedException {
+        ConcurrentHistogram ch = new ConcurrentHistogram(32, 4);
+        int threads = 4, samples = 100_000;
+        List<Thread> list = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 1; i <= samples; i++)
+                    ch.sampleNanos(i);
+            });
+            thread.start();
+            list.add(thread);
+        }
+        // snapshots while recording are consistent
+        for (int i = 0; i < 10; i++) {
+            Histogram snapshot = ch.snapshot();
+            long sum = snapshot.overRange();
+            for (int count : snapshot.sampleCount())
+                sum += count;
+            assertEquals(sum, snapshot.totalCount());
+        }
+        for (Thread thread : list)
+            thread.join();
+
+        assertEquals(threads, ch.recorderCount());
+        assertEquals(threads * samples, ch.totalCount());
+        Histogram expected = new Histogram(32, 4);
+        for (int t = 0; t < threads; t++)
+            for (int i = 1; i <= samples; i++)
+                expected.sampleNanos(i);
+        assertEquals(expected, ch.snapshot());
+        assertEquals(expected.totalCount(), ch.snapshot().totalCount());
+    }
+}
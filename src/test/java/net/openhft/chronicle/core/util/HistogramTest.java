@@ -16,10 +16,14 @@
 
 package net.openhft.chronicle.core.util;
 
+import net.openhft.chronicle.core.OS;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
-import static org.junit.Assert.assertEquals;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
 
 /*
  * Created by Peter Lawrey on 10/07/15.
@@ -58,6 +62,141 @@ public class HistogramTest {
         assertEquals(30, (long) h.percentile(0.30), 0);
     }
 
+    @Test
+    public void testWriteReadByteBuffer() {
+        @NotNull Histogram h = new Histogram(32, 4);
+        for (int i = 1; i <= 100_000; i += 7)
+            h.sampleNanos(i);
+        h.sampleNanos(Long.MAX_VALUE);
+        int size = h.encodedSize();
+        // mostly empty buckets are run length encoded
+        assertTrue(size < (32 << 4));
+
+        ByteBuffer bb = ByteBuffer.allocate(size);
+        h.writeTo(bb);
+        assertEquals(size, bb.position());
+        bb.flip();
+        @NotNull Histogram h2 = new Histogram();
+        h2.readFrom(bb);
+        assertEquals(0, bb.remaining());
+        assertEquals(h, h2);
+        assertEquals(h.totalCount(), h2.totalCount());
+        assertEquals(h.overRange(), h2.overRange());
+        assertEquals(h.toMicrosFormat(), h2.toMicrosFormat());
+    }
+
+    @Test
+    public void testWriteReadNative() {
+        @NotNull Histogram h = Histogram.timeMicros();
+        for (int i = 0; i < 1000; i++)
+            h.sampleNanos(500 + i * 100);
+        int size = h.encodedSize();
+        long address = OS.memory().allocate(size);
+        try {
+            assertEquals(size, h.writeTo(address));
+            @NotNull Histogram h2 = Histogram.timeMicros();
+            assertEquals(size, h2.readFrom(address));
+            assertEquals(h, h2);
+            assertEquals(h.totalCount(), h2.totalCount());
+        } finally {
+            OS.memory().freeMemory(address, size);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadUnknownVersion() {
+        new Histogram().readFrom(ByteBuffer.wrap(new byte[]{99, 0, 0}));
+    }
+
+    @Test
+    public void testReadCorruptSkipLeavesHistogramUnchanged() {
+        @NotNull Histogram h = new Histogram(32, 4);
+        @NotNull Histogram h2 = new Histogram(32, 4);
+        h2.sampleNanos(200);
+        ByteBuffer bb = ByteBuffer.allocate(h.encodedSize() + 8);
+        h.writeTo(bb);
+        // replace the end marker with a skip which wraps the first bucket index to -1.
+        bb.position(bb.position() - 2);
+        bb.put(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F, 1});
+        bb.flip();
+        String before = h2.toString();
+        try {
+            h2.readFrom(bb);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals(before, h2.toString());
+        }
+    }
+
+    @Test
+    public void testPercentilesWithoutAllocating() {
+        @NotNull Histogram h = new Histogram(7, 5);
+        for (int i = 1; i <= 100; i++)
+            h.sample(i);
+        double[] fractions = new double[Histogram.MAX_PERCENTILES];
+        double[] percentiles = new double[Histogram.MAX_PERCENTILES];
+        int n = Histogram.percentilesFor(h.totalCount(), fractions);
+        assertEquals(4, n);
+        assertEquals(8, Histogram.percentilesFor(100_000_000, fractions));
+        n = Histogram.percentilesFor(h.totalCount(), fractions);
+        h.getPercentiles(fractions, n, percentiles);
+        assertArrayEquals(h.getPercentiles(), Arrays.copyOf(percentiles, n), 0);
+        assertEquals(101, percentiles[n - 1], 0);
+    }
+
+    @Test
+    public void testSampleWithExpectedInterval() {
+        @NotNull Histogram h = new Histogram(32, 4);
+        // a 1 ms stall with a 100 us interval hides 9 samples
+        h.sampleNanos(1_000_000, 100_000);
+        assertEquals(10, h.totalCount());
+        assertEquals(1_000_000, h.percentile(1), 1_000_000 / 16);
+        assertEquals(100_000, h.percentile(0.05), 100_000 / 16);
+
+        @NotNull Histogram h2 = new Histogram(32, 4);
+        h2.sampleNanos(50_000, 100_000);
+        h2.sampleNanos(50_000, 0);
+        assertEquals(2, h2.totalCount());
+    }
+
+    @Test
+    public void testCopyCorrectedForCoordinatedOmission() {
+        @NotNull Histogram recorded = new Histogram(32, 4);
+        @NotNull Histogram corrected = new Histogram(32, 4);
+        for (int i = 0; i < 10_000; i++) {
+            long nanos = i % 1000 == 0 ? 5_000_000 : 20_000 + i % 7 * 1000;
+            recorded.sampleNanos(nanos);
+            corrected.sampleNanos(nanos, 50_000);
+        }
+        @NotNull Histogram h = recorded.copyCorrectedForCoordinatedOmission(50_000);
+        assertEquals(10_000, recorded.totalCount());
+        // the value of each bucket is approximate so the number of samples added is too
+        assertEquals(corrected.totalCount(), h.totalCount(), corrected.totalCount() / 50);
+        long sum = 0;
+        for (int count : h.sampleCount())
+            sum += count;
+        assertEquals(h.totalCount(), sum);
+        for (double p : new double[]{0.5, 0.9, 0.99, 0.999, 1})
+            assertEquals(corrected.percentile(p), h.percentile(p), corrected.percentile(p) / 8);
+        // the original is unchanged
+        assertEquals(recorded, recorded.copyCorrectedForCoordinatedOmission(0));
+    }
+
+    @Test
+    public void testCorrectedForCoordinatedOmissionSaturates() {
+        @NotNull Histogram recorded = new Histogram(32, 4);
+        // 3.5 is taken to be 3.5625, the middle of its bucket, so two samples are missing, at 2.5625 and 1.5625
+        int bucket = recorded.sample(1.5625);
+        recorded.init(32, 4, 0, Integer.MAX_VALUE - 5, recorded.floor());
+        recorded.sampleCount()[bucket] = Integer.MAX_VALUE - 5;
+        for (int i = 0; i < 10; i++)
+            recorded.sample(3.5);
+        @NotNull Histogram h = recorded.copyCorrectedForCoordinatedOmission(1);
+        assertEquals(Integer.MAX_VALUE, h.sampleCount()[bucket]);
+        assertEquals(5, h.overRange());
+        assertEquals(Integer.MAX_VALUE - 5 + 30L, h.totalCount());
+    }
+
 /*    @Test
     @Ignore("Long running")
     public void testManySamples() throws IOException {
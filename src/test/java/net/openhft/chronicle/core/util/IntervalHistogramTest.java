@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class IntervalHistogramTest {
+
+    @Test
+    public void intervals() {
+        IntervalHistogram ih = new IntervalHistogram(7, 5);
+        for (int i = 1; i <= 100; i++)
+            ih.sample(i);
+        Histogram first = ih.interval();
+        assertEquals(100, first.totalCount());
+        assertEquals(101, first.percentile(1), 0);
+
+        for (int i = 1; i <= 10; i++)
+            ih.sample(1000);
+        Histogram second = ih.interval();
+        assertEquals(10, second.totalCount());
+        assertEquals(10, second.overRange());
+
+        assertEquals(0, ih.interval().totalCount());
+
+        Histogram cumulative = ih.cumulative();
+        assertEquals(110, cumulative.totalCount());
+        assertEquals(10, cumulative.overRange());
+        Histogram expected = new Histogram(7, 5);
+        for (int i = 1; i <= 100; i++)
+            expected.sample(i);
+        assertEquals(expected, cumulative);
+    }
+
+    @Test
+    public void intervalsWhileRecording() throws InterruptedException {
+        IntervalHistogram ih = new IntervalHistogram(32, 4);
+        int samples = 2_000_000;
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < samples; i++)
+                ih.sampleNanos(100 + (i & 1023));
+        });
+        writer.start();
+        long total = 0;
+        Histogram interval = new Histogram(32, 4);
+        while (writer.isAlive())
+            total += ih.interval(interval).totalCount();
+        writer.join();
+        total += ih.interval(interval).totalCount();
+
+        assertEquals(samples, total);
+        assertEquals(samples, ih.cumulative().totalCount());
+        long sum = 0;
+        for (int count : ih.cumulative().sampleCount())
+            sum += count;
+        assertEquals(samples, sum);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LongHistogramTest {
+
+    @Test
+    public void samePercentilesAsHistogram() {
+        LongHistogram lh = new LongHistogram(7, 5);
+        Histogram h = new Histogram(7, 5);
+        for (int i = 1; i <= 100; i++)
+            assertEquals(h.sample(i), lh.sample(i));
+        assertArrayEquals(h.getPercentiles(), lh.getPercentiles(), 0);
+        assertEquals(h.toMicrosFormat(), lh.toMicrosFormat());
+        assertEquals(h.toLongMicrosFormat(), lh.toLongMicrosFormat());
+        assertEquals(h, lh.toHistogram());
+        assertEquals(lh, LongHistogram.from(h));
+    }
+
+    @Test
+    public void growsRange() {
+        LongHistogram lh = new LongHistogram(4, 4);
+        assertEquals(4, lh.powersOf2());
+        lh.sampleNanos(10);
+        lh.sampleNanos(1_000_000_000L);
+        assertTrue(lh.powersOf2() >= 30);
+        lh.sampleNanos(Long.MAX_VALUE);
+        assertTrue(lh.powersOf2() >= 63);
+        assertEquals(0, lh.overRange());
+        assertEquals(3, lh.totalCount());
+        // the worst is kept rather than being over range
+        assertEquals(Long.MAX_VALUE, lh.percentile(1), Long.MAX_VALUE / 16);
+        assertEquals(1e9, lh.percentile(0.5), 1e9 / 16);
+
+        lh.sample(Double.POSITIVE_INFINITY);
+        assertEquals(1, lh.overRange());
+        assertEquals(Double.POSITIVE_INFINITY, lh.percentile(1), 0);
+    }
+
+    @Test
+    public void countsBeyondInt() {
+        LongHistogram big = new LongHistogram(8, 2);
+        int bucket = big.sample(100);
+        big.sampleCount()[bucket] = 3L << 31;
+        LongHistogram total = new LongHistogram(8, 2);
+        total.add(big);
+        total.add(big);
+        assertEquals(3L << 32, total.sampleCount()[bucket]);
+        // capped when converted
+        assertEquals(Integer.MAX_VALUE, total.toHistogram().sampleCount()[bucket]);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.OS;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MappedHistogramTest {
+
+    @Rule
+    public final TestName testName = new TestName();
+
+    private File file() {
+        File file = new File(OS.TARGET, getClass().getName() + "." + testName.getMethodName() + ".deleteme");
+        file.delete();
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void sharedBetweenMappings() throws IOException, InterruptedException {
+        File file = file();
+        // two mappings of the same file behave as two processes would.
+        try (MappedHistogram h1 = MappedHistogram.open(file, 32, 4, 1.0);
+             MappedHistogram h2 = MappedHistogram.open(file, 32, 4, 1.0)) {
+            Histogram expected = new Histogram(32, 4);
+            for (int i = 1; i <= 1000; i++) {
+                assertEquals(expected.sample(i), h1.sample(i));
+                expected.sample(i * 10);
+                h2.sampleNanos(i * 10);
+            }
+            Thread t = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++)
+                    h2.sampleNanos(1234);
+            });
+            t.start();
+            for (int i = 0; i < 10_000; i++) {
+                h1.sampleNanos(1234);
+                expected.sampleNanos(1234);
+                expected.sampleNanos(1234);
+            }
+            t.join();
+
+            try (MappedHistogram reader = MappedHistogram.open(file)) {
+                assertEquals(32, reader.powersOf2());
+                assertEquals(4, reader.fractionBits());
+                Histogram snapshot = reader.snapshot();
+                assertEquals(expected, snapshot);
+                assertEquals(expected.totalCount(), snapshot.totalCount());
+                assertEquals(expected.totalCount(), reader.totalCount());
+                assertEquals(expected.percentile(0.99), snapshot.percentile(0.99), 0);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void differentBuckets() throws IOException {
+        File file = file();
+        try (MappedHistogram h = MappedHistogram.open(file, 32, 4, 1.0)) {
+            MappedHistogram.open(file, 32, 5, 1.0);
+        }
+    }
+
+    @Test
+    public void notAHistogram() throws IOException {
+        File file = file();
+        byte[] bytes = new byte[128];
+        Arrays.fill(bytes, (byte) 1);
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(bytes);
+        }
+        long memoryMapped = OS.memoryMapped();
+        try {
+            MappedHistogram.open(file);
+            fail();
+        } catch (IOException expected) {
+            assertEquals(memoryMapped, OS.memoryMapped());
+        }
+        try {
+            MappedHistogram.open(file, 32, 4, 1.0);
+            fail();
+        } catch (IOException expected) {
+            assertEquals(memoryMapped, OS.memoryMapped());
+        }
+    }
+}